@@ -0,0 +1,75 @@
+package vektah.rust.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import vektah.rust.ide.runner.RustConsoleFilter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Matches every line of a generated program log the way the console calls RustConsoleFilter, once through the
+ * filter's pre-check and once with the regex alone. Scores are lines per second.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ConsoleFilterBenchmark {
+	private static final int LINE_COUNT = 200000;
+
+	// the same expression as RustConsoleFilter.MSG_LINE
+	private static final Pattern MSG_LINE = Pattern.compile("\t?(\\S+\\.\\w+):(\\d+)[:\\s].*\n");
+
+	private List<String> log;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		log = generate(LINE_COUNT);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(LINE_COUNT)
+	public int filter() {
+		int matches = 0;
+		for (String line : log) {
+			if (RustConsoleFilter.matchLocation(line) != null) {
+				matches++;
+			}
+		}
+		return matches;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(LINE_COUNT)
+	public int regexOnly() {
+		int matches = 0;
+		for (String line : log) {
+			Matcher matcher = MSG_LINE.matcher(line);
+			if (matcher.matches()) {
+				matches++;
+			}
+		}
+		return matches;
+	}
+
+	/**
+	 * Mostly a program's own logging, with a panic and its location now and then.
+	 */
+	static List<String> generate(int lineCount) {
+		List<String> lines = new ArrayList<String>(lineCount);
+		for (int n = 0; lines.size() < lineCount; n++) {
+			lines.add("2014-06-01 12:00:" + (n % 60) + " INFO request " + n + " served in " + (n % 97) + ".5ms from cache node-" + (n % 8) + "\n");
+			lines.add("    processing item " + n + " of batch " + (n / 100) + ": key=value_" + n + ", size=" + (n * 31 % 4096) + "\n");
+			if (n % 1000 == 0) {
+				lines.add("task '<main>' failed at 'called `Option::unwrap()` on a `None` value', src/lib/option.rs:" + (n % 500) + "\n");
+				lines.add("src/worker/mod.rs:" + (n % 500 + 1) + ":9: " + (n % 500 + 1) + ":20 note: while processing item " + n + "\n");
+			}
+		}
+		return lines;
+	}
+}
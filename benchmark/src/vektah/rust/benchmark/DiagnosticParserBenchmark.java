@@ -0,0 +1,75 @@
+package vektah.rust.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import vektah.rust.ide.builder.RustDiagnosticParser;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parses a generated rustc stderr capture the way RustDiagnosticListener does: split into lines in place, parse
+ * every line, and only create strings for the diagnostics that would be reported.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class DiagnosticParserBenchmark {
+	@Param({"100k"})
+	public String lines;
+
+	private String stderr;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		stderr = generate(RustCorpus.parseLineCount(lines));
+	}
+
+	@Benchmark
+	public int parse() {
+		RustDiagnosticParser parser = new RustDiagnosticParser();
+		int messageChars = 0;
+		int start = 0;
+
+		for (int i = 0; i < stderr.length(); i++) {
+			if (stderr.charAt(i) == '\n') {
+				if (parser.parse(stderr, start, i)) {
+					messageChars += parser.getMessage(stderr).length();
+				}
+				start = i + 1;
+			}
+		}
+
+		return messageChars;
+	}
+
+	/**
+	 * Looks like a crate with lots of warnings: every diagnostic is followed by the source snippet and marker line
+	 * rustc prints, with the occasional note and error.
+	 */
+	static String generate(int lineCount) {
+		StringBuilder builder = new StringBuilder(lineCount * 60);
+		int written = 0;
+
+		for (int n = 0; written < lineCount; n++) {
+			int line = n % 2000 + 1;
+			String file = "src/module_" + (n / 50) % 40 + "/mod.rs";
+
+			builder.append(file).append(':').append(line).append(":9: ").append(line).append(":20 warning: unused variable: `value_")
+					.append(n).append("`, #[warn(unused_variable)] on by default\n");
+			builder.append(file).append(':').append(line).append("     let value_").append(n).append(" = compute(").append(n).append(");\n");
+			builder.append("                                  ^~~~~~~~~~~\n");
+			written += 3;
+
+			if (n % 10 == 0) {
+				builder.append(file).append(':').append(line).append(":5: ").append(line).append(":30 error: mismatched types: expected `int` but found `uint` (expected int but found uint)\n");
+				builder.append(file).append(':').append(line + 1).append(":5: ").append(line + 1).append(":30 note: in expansion of format_args!\n");
+				written += 2;
+			}
+		}
+
+		builder.append("error: aborting due to ").append(lineCount / 50).append(" previous errors\n");
+		return builder.toString();
+	}
+}
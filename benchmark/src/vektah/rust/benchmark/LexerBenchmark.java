@@ -0,0 +1,86 @@
+package vektah.rust.benchmark;
+
+import com.intellij.lexer.Lexer;
+import com.intellij.openapi.util.TextRange;
+import gnu.trove.TIntArrayList;
+import org.openjdk.jmh.annotations.*;
+import vektah.rust.RustFlexAdapter;
+import vektah.rust.RustStringLiteralLexer;
+import vektah.rust.folding.RustFoldingBuilder;
+import vektah.rust.psi.RustTokens;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class LexerBenchmark {
+	@Param({RustCorpus.SAMPLES, "10k", "100k", "1m"})
+	public String corpus;
+
+	private String text;
+	private int[] stringLiterals;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		text = RustCorpus.load(corpus);
+
+		// Remember where the string literals are so the string lexer benchmark only measures the string lexer
+		TIntArrayList ranges = new TIntArrayList();
+		Lexer lexer = new RustFlexAdapter(false);
+		lexer.start(text);
+		while (lexer.getTokenType() != null) {
+			if (lexer.getTokenType() == RustTokens.STRING_LIT) {
+				ranges.add(lexer.getTokenStart());
+				ranges.add(lexer.getTokenEnd());
+			}
+			lexer.advance();
+		}
+		stringLiterals = ranges.toNativeArray();
+	}
+
+	@Benchmark
+	public int rustLexer(SourceCounters counters) {
+		Lexer lexer = new RustFlexAdapter(false);
+		lexer.start(text);
+
+		int tokens = 0;
+		while (lexer.getTokenType() != null) {
+			tokens++;
+			lexer.advance();
+		}
+
+		counters.tokens += tokens;
+		return tokens;
+	}
+
+	@Benchmark
+	public int stringLiteralLexer(SourceCounters counters) {
+		int tokens = 0;
+
+		for (int i = 0; i < stringLiterals.length; i += 2) {
+			RustStringLiteralLexer lexer = new RustStringLiteralLexer(RustTokens.STRING_LIT);
+			lexer.start(text, stringLiterals[i], stringLiterals[i + 1], 0);
+			while (lexer.getTokenType() != null) {
+				tokens++;
+				lexer.advance();
+			}
+		}
+
+		counters.tokens += tokens;
+		return tokens;
+	}
+
+	/**
+	 * The fold regions of files too large to be folded from the tree, compare with ParserBenchmark.rustParser.
+	 */
+	@Benchmark
+	public List<TextRange> lexerFolding() {
+		return RustFoldingBuilder.findRegions(text);
+	}
+}
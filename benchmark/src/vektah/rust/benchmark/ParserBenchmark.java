@@ -0,0 +1,78 @@
+package vektah.rust.benchmark;
+
+import com.intellij.core.CoreApplicationEnvironment;
+import com.intellij.lang.ASTNode;
+import com.intellij.lang.PsiBuilder;
+import com.intellij.lang.PsiBuilderFactory;
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.util.Disposer;
+import org.openjdk.jmh.annotations.*;
+import vektah.rust.RustFileType;
+import vektah.rust.RustParserDefinition;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the same lexer + parser pipeline the IDE uses, but on top of the core (headless) environment so the
+ * numbers aren't polluted by PSI, indexing or the editor.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ParserBenchmark {
+	@Param({RustCorpus.SAMPLES, "10k", "100k", "1m"})
+	public String corpus;
+
+	private String text;
+	private Disposable disposable;
+	private RustParserDefinition parserDefinition;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		text = RustCorpus.load(corpus);
+
+		disposable = Disposer.newDisposable();
+		parserDefinition = new RustParserDefinition();
+		CoreApplicationEnvironment environment = new CoreApplicationEnvironment(disposable);
+		environment.registerFileType(RustFileType.INSTANCE, "rs");
+		environment.registerParserDefinition(parserDefinition);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		Disposer.dispose(disposable);
+	}
+
+	@Benchmark
+	public ASTNode rustParser(SourceCounters counters) {
+		PsiBuilder builder = PsiBuilderFactory.getInstance().createBuilder(parserDefinition, parserDefinition.createLexer(null), text);
+		ASTNode root = parserDefinition.createParser(null).parse(parserDefinition.getFileNodeType(), builder);
+
+		counters.nodes += countNodes(root);
+		return root;
+	}
+
+	private static int countNodes(ASTNode root) {
+		int count = 0;
+		ASTNode node = root;
+
+		// Iterative pre-order walk, the generated trees are far too deep for recursion on the large corpora
+		while (node != null) {
+			count++;
+			ASTNode next = node.getFirstChildNode();
+			while (next == null && node != root) {
+				next = node.getTreeNext();
+				if (next == null) {
+					node = node.getTreeParent();
+				}
+			}
+			node = next;
+		}
+
+		return count;
+	}
+}
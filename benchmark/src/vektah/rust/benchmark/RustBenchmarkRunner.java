@@ -0,0 +1,56 @@
+package vektah.rust.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Runs all of the benchmarks with the GC profiler attached and prints allocation per KB of source, which JMH can't
+ * report on its own because it only knows about bytes per operation.
+ *
+ * Pass a regexp as the first argument to run a subset, ie "Lexer".
+ */
+public class RustBenchmarkRunner {
+	private static final String ALLOC_RATE_NORM = "gc.alloc.rate.norm";
+
+	public static void main(String[] args) throws RunnerException, IOException {
+		Options options = new OptionsBuilder()
+				.include(args.length > 0 ? args[0] : "vektah.rust.benchmark.*")
+				.addProfiler(GCProfiler.class)
+				.build();
+
+		Collection<RunResult> results = new Runner(options).run();
+		Map<String, Double> corpusKb = new HashMap<String, Double>();
+
+		System.out.println();
+		System.out.println("Allocation per KB of source:");
+		for (RunResult result : results) {
+			String corpus = result.getParams().getParam("corpus");
+			if (corpus == null) {
+				// not a benchmark over rust source
+				continue;
+			}
+			Double kb = corpusKb.get(corpus);
+			if (kb == null) {
+				kb = RustCorpus.load(corpus).length() / 1024.0;
+				corpusKb.put(corpus, kb);
+			}
+
+			for (Map.Entry<String, Result> entry : result.getSecondaryResults().entrySet()) {
+				if (entry.getKey().endsWith(ALLOC_RATE_NORM)) {
+					System.out.printf("  %-60s %-8s %12.1f B/KB%n",
+							result.getParams().getBenchmark(), corpus, entry.getValue().getScore() / kb);
+				}
+			}
+		}
+	}
+}
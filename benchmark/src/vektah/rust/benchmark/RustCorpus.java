@@ -0,0 +1,109 @@
+package vektah.rust.benchmark;
+
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.vfs.CharsetToolkit;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Source text fed to the benchmarks. "samples" is every file in src/rust concatenated, the other sizes are
+ * generated to look like the machine generated bindings files we open in practice: lots of structs, extern
+ * blocks, small impls and doc comments.
+ */
+public class RustCorpus {
+	public static final String SAMPLES = "samples";
+
+	private static final String SAMPLES_DIR = System.getProperty("rust.samples.dir", "src/rust");
+
+	private RustCorpus() {}
+
+	public static String load(String name) throws IOException {
+		if (SAMPLES.equals(name)) {
+			return loadSamples(new File(SAMPLES_DIR));
+		}
+
+		return generate(parseLineCount(name));
+	}
+
+	/**
+	 * Accepts plain numbers as well as the k / m suffixes used in the @Param lists, ie "10k" or "1m".
+	 */
+	public static int parseLineCount(String name) {
+		String lower = name.toLowerCase();
+		if (lower.endsWith("k")) {
+			return Integer.parseInt(lower.substring(0, lower.length() - 1)) * 1000;
+		}
+		if (lower.endsWith("m")) {
+			return Integer.parseInt(lower.substring(0, lower.length() - 1)) * 1000 * 1000;
+		}
+		return Integer.parseInt(lower);
+	}
+
+	private static String loadSamples(File dir) throws IOException {
+		File[] files = dir.listFiles();
+		if (files == null) {
+			throw new IOException("Cannot list rust samples in " + dir.getAbsolutePath() + ", set -Drust.samples.dir");
+		}
+		Arrays.sort(files);
+
+		StringBuilder builder = new StringBuilder();
+		for (File file : files) {
+			if (file.getName().endsWith(".rs")) {
+				builder.append(FileUtil.loadFile(file, CharsetToolkit.UTF8)).append('\n');
+			}
+		}
+		return builder.toString();
+	}
+
+	public static String generate(int lines) {
+		StringBuilder builder = new StringBuilder(lines * 32);
+		int written = 0;
+		int chunk = 0;
+
+		while (written < lines) {
+			written += appendChunk(builder, chunk++);
+		}
+
+		return builder.toString();
+	}
+
+	/**
+	 * Appends one chunk of generated source and returns the number of lines written.
+	 */
+	private static int appendChunk(StringBuilder out, int n) {
+		out.append("/**\n");
+		out.append(" * Generated binding ").append(n).append(" /* nested */ comment\n");
+		out.append(" */\n");
+		out.append("#[deriving(Clone, Eq)]\n");
+		out.append("pub struct Binding").append(n).append(" {\n");
+		out.append("    pub field_a: u32,\n");
+		out.append("    pub field_b: *mut u8,\n");
+		out.append("    priv field_c: [c_char, ..16],\n");
+		out.append("}\n");
+		out.append("\n");
+		out.append("extern \"C\" {\n");
+		out.append("    pub fn binding_").append(n).append("_new(size: u32, flags: i32) -> *mut Binding").append(n).append(";\n");
+		out.append("    pub fn binding_").append(n).append("_free(b: *mut Binding").append(n).append(");\n");
+		out.append("}\n");
+		out.append("\n");
+		out.append("impl Binding").append(n).append(" {\n");
+		out.append("    /// Returns the sum of the two fields\n");
+		out.append("    pub fn sum(&self) -> u32 {\n");
+		out.append("        let x = self.field_a + 0x").append(Integer.toHexString(n)).append("u32;\n");
+		out.append("        match x {\n");
+		out.append("            0..9 => 1,\n");
+		out.append("            _ => x * 2\n");
+		out.append("        }\n");
+		out.append("    }\n");
+		out.append("\n");
+		out.append("    pub fn describe(&self) -> &'static str {\n");
+		out.append("        println!(\"binding {} \\n\", self.field_a);\n");
+		out.append("        r##\"raw \"# string ").append(n).append("\"##\n");
+		out.append("    }\n");
+		out.append("}\n");
+		out.append("\n");
+		return 31;
+	}
+}
@@ -0,0 +1,24 @@
+package vektah.rust.benchmark;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Secondary results reported next to the primary score. JMH normalises these by time, so "tokens" comes out as
+ * tokens/sec and "nodes" as AST nodes/sec.
+ */
+@State(Scope.Thread)
+@AuxCounters
+public class SourceCounters {
+	public long tokens;
+	public long nodes;
+
+	@Setup(Level.Iteration)
+	public void reset() {
+		tokens = 0;
+		nodes = 0;
+	}
+}
@@ -0,0 +1,146 @@
+package vektah.rust;
+
+import com.intellij.lexer.LexerBase;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.psi.TokenType;
+import com.intellij.psi.tree.IElementType;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Equivalent of FlexAdapter for RustLexer, except that the state it reports also carries the block comment nesting
+ * depth, the raw string hash count and whether the current comment is a doc comment. That is everything needed to
+ * restart RustLexer from the start of any token, including the per line pieces of long comments and raw strings.
+ *
+ * State layout: bits 0-3 are the jflex lexical state, bit 4 is the doc comment flag and bits 16-30 hold the comment
+ * depth (in IN_BLOCK_COMMENT) or the hash count (in IN_RAW_STRING).
+ */
+public class RustFlexAdapter extends LexerBase {
+	private static final Logger LOG = Logger.getInstance(RustFlexAdapter.class);
+
+	private static final int LEXICAL_STATE_MASK = 0xF;
+	private static final int DOC_COMMENT_FLAG = 0x10;
+	private static final int COUNT_SHIFT = 16;
+	private static final int UNUSED_BITS_MASK = 0xFFFF & ~(LEXICAL_STATE_MASK | DOC_COMMENT_FLAG);
+
+	private final RustLexer myFlex;
+
+	private IElementType myTokenType;
+	private CharSequence myText;
+	private int myTokenStart;
+	private int myTokenEnd;
+	private int myBufferEnd;
+	private int myState;
+	private boolean myFailed;
+
+	/**
+	 * @param splitLongTokens return block comments and raw strings one line at a time. The highlighter wants this,
+	 *                        the parser doesn't.
+	 */
+	public RustFlexAdapter(boolean splitLongTokens) {
+		myFlex = new RustLexer((Reader) null);
+		myFlex.setSplitLongTokens(splitLongTokens);
+	}
+
+	/**
+	 * Whether the given state could have been produced by this lexer, as opposed to a state belonging to a lexer
+	 * layered on top of it.
+	 */
+	public static boolean isRestartableState(int state) {
+		return (state & UNUSED_BITS_MASK) == 0;
+	}
+
+	@Override
+	public void start(@NotNull CharSequence buffer, int startOffset, int endOffset, int initialState) {
+		myText = buffer;
+		myTokenStart = myTokenEnd = startOffset;
+		myBufferEnd = endOffset;
+
+		int lexicalState = initialState & LEXICAL_STATE_MASK;
+		int count = initialState >>> COUNT_SHIFT;
+		myFlex.reset(buffer, startOffset, endOffset, lexicalState);
+		myFlex.restoreState(
+				startOffset,
+				lexicalState == RustLexer.IN_BLOCK_COMMENT ? count : 0,
+				lexicalState == RustLexer.IN_RAW_STRING ? count : 0,
+				(initialState & DOC_COMMENT_FLAG) != 0
+		);
+		myTokenType = null;
+		myFailed = false;
+	}
+
+	@Override
+	public int getState() {
+		locateToken();
+		return myState;
+	}
+
+	@Override
+	public IElementType getTokenType() {
+		locateToken();
+		return myTokenType;
+	}
+
+	@Override
+	public int getTokenStart() {
+		locateToken();
+		return myTokenStart;
+	}
+
+	@Override
+	public int getTokenEnd() {
+		locateToken();
+		return myTokenEnd;
+	}
+
+	@Override
+	public void advance() {
+		locateToken();
+		myTokenType = null;
+	}
+
+	@NotNull
+	@Override
+	public CharSequence getBufferSequence() {
+		return myText;
+	}
+
+	@Override
+	public int getBufferEnd() {
+		return myBufferEnd;
+	}
+
+	private void locateToken() {
+		if (myTokenType != null) return;
+
+		myTokenStart = myTokenEnd;
+		if (myFailed) return;
+		myState = encodeState();
+
+		try {
+			myTokenType = myFlex.advance();
+			myTokenEnd = myFlex.getTokenEnd();
+		} catch (IOException e) {
+			LOG.error("Error lexing rust source at offset " + myTokenStart, e);
+			myFailed = true;
+			myTokenType = TokenType.BAD_CHARACTER;
+			myTokenEnd = myBufferEnd;
+		}
+	}
+
+	private int encodeState() {
+		int lexicalState = myFlex.yystate();
+
+		if (lexicalState == RustLexer.IN_BLOCK_COMMENT) {
+			return lexicalState | (myFlex.isDocComment() ? DOC_COMMENT_FLAG : 0) | (myFlex.getCommentDepth() << COUNT_SHIFT);
+		}
+
+		if (lexicalState == RustLexer.IN_RAW_STRING) {
+			return lexicalState | (myFlex.getRawStringHashes() << COUNT_SHIFT);
+		}
+
+		return lexicalState;
+	}
+}
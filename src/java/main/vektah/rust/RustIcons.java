@@ -2,6 +2,8 @@ package vektah.rust;
 
 import com.intellij.openapi.util.IconLoader;
 import com.intellij.psi.PsiElement;
+import com.intellij.psi.StubBasedPsiElement;
+import com.intellij.psi.stubs.StubElement;
 import com.intellij.util.PlatformIcons;
 import org.jetbrains.annotations.Nullable;
 import vektah.rust.psi.*;
@@ -24,6 +26,10 @@ public class RustIcons {
     private static final Icon ICON_STATIC = PlatformIcons.VARIABLE_ICON;
     private static final Icon ICON_ENUM = PlatformIcons.ENUM_ICON;
     private static final Icon ICON_PROPERTY = PlatformIcons.PROPERTY_ICON;
+    private static final Icon ICON_TRAIT_METHOD = PlatformIcons.ABSTRACT_METHOD_ICON;
+    private static final Icon ICON_VARIANT = PlatformIcons.FIELD_ICON;
+    private static final Icon ICON_EXTERN_CRATE = PlatformIcons.LIBRARY_ICON;
+    private static final Icon ICON_MACRO = PlatformIcons.ANNOTATION_TYPE_ICON;
 
     @Nullable
     public static Icon forNode(PsiElement psiElement) {
@@ -31,8 +37,7 @@ public class RustIcons {
             return ICON_MODULE;
         } else if (psiElement instanceof RustStructItem) {
             return ICON_STRUCT;
-        } else if (psiElement instanceof RustFnItem
-                && psiElement.getParent() instanceof RustImplBody) {
+        } else if (psiElement instanceof RustFnItem && isInImpl(psiElement)) {
             return ICON_METHOD;
         } else if (psiElement instanceof RustFnItem) {
             return ICON_FUNCTION;
@@ -46,10 +51,44 @@ public class RustIcons {
             return ICON_ENUM;
         } else if (psiElement instanceof RustStructProperty) {
             return ICON_PROPERTY;
+        } else if (psiElement instanceof RustTraitFunctionDeclaration && psiElement.getParent() instanceof RustExternBlock) {
+            return ICON_FUNCTION;
+        } else if (psiElement instanceof RustTraitFunctionDeclaration) {
+            return ICON_TRAIT_METHOD;
+        } else if (psiElement instanceof RustEnumVariant) {
+            return ICON_VARIANT;
+        } else if (psiElement instanceof RustExternItem) {
+            return forExternItem((RustExternItem) psiElement);
+        } else if (psiElement instanceof RustExternVariable) {
+            return ICON_STATIC;
+        } else if (psiElement instanceof RustMacroRules) {
+            return ICON_MACRO;
         } else if (psiElement instanceof RustFile) {
             return ICON_RUST_16;
         }
 
         return null;
     }
+
+    private static Icon forExternItem(RustExternItem item) {
+        if (item.getExternCrate() != null) {
+            return ICON_EXTERN_CRATE;
+        } else if (item.getExternBlock() != null) {
+            return ICON_MODULE;
+        }
+
+        return ICON_FUNCTION;
+    }
+
+    /**
+     * Uses the stub when there is one so that showing an icon in Go to Symbol doesn't load the AST.
+     */
+    private static boolean isInImpl(PsiElement psiElement) {
+        StubElement stub = ((StubBasedPsiElement) psiElement).getStub();
+        if (stub != null) {
+            return stub.getParentStub().getStubType() == RustTokens.IMPL_ITEM;
+        }
+
+        return psiElement.getParent() instanceof RustImplBody;
+    }
 }
@@ -1,10 +1,8 @@
 package vektah.rust;
 
 import com.intellij.lang.ASTNode;
-import com.intellij.lang.Language;
 import com.intellij.lang.ParserDefinition;
 import com.intellij.lang.PsiParser;
-import com.intellij.lexer.FlexAdapter;
 import com.intellij.lexer.Lexer;
 import com.intellij.openapi.project.Project;
 import com.intellij.psi.FileViewProvider;
@@ -16,18 +14,17 @@ import com.intellij.psi.tree.TokenSet;
 import org.jetbrains.annotations.NotNull;
 import vektah.rust.psi.RustFile;
 import vektah.rust.psi.RustTokens;
-
-import java.io.Reader;
+import vektah.rust.psi.stubs.RustFileElementType;
 
 public class RustParserDefinition implements ParserDefinition {
 	public static final TokenSet WHITE_SPACES = TokenSet.create(TokenType.WHITE_SPACE);
 	public static final TokenSet COMMENTS = TokenSet.create(RustTokens.BLOCK_COMMENT, RustTokens.LINE_COMMENT);
-	public static final IFileElementType FILE = new IFileElementType(Language.findInstance(RustLanguage.class));
+	public static final IFileElementType FILE = new RustFileElementType();
 
 	@NotNull
 	@Override
 	public Lexer createLexer(Project project) {
-		return new FlexAdapter(new RustLexer((Reader) null));
+		return new RustFlexAdapter(false);
 	}
 
 	@Override
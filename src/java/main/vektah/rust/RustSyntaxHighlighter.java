@@ -1,6 +1,5 @@
 package vektah.rust;
 
-import com.intellij.lexer.FlexAdapter;
 import com.intellij.lexer.LayeredLexer;
 import com.intellij.lexer.Lexer;
 import com.intellij.openapi.editor.DefaultLanguageHighlighterColors;
@@ -11,8 +10,6 @@ import com.intellij.psi.tree.IElementType;
 import org.jetbrains.annotations.NotNull;
 import vektah.rust.psi.RustTokens;
 
-import java.io.Reader;
-
 import static vektah.rust.psi.RustTokens.*;
 
 public class RustSyntaxHighlighter extends SyntaxHighlighterBase {
@@ -57,7 +54,7 @@ public class RustSyntaxHighlighter extends SyntaxHighlighterBase {
 	@NotNull
 	@Override
 	public Lexer getHighlightingLexer() {
-		LayeredLexer ret = new LayeredLexer(new FlexAdapter(new RustLexer((Reader) null)));
+		LayeredLexer ret = new LayeredLexer(new RustFlexAdapter(true));
 		ret.registerSelfStoppingLayer(new RustStringLiteralLexer(RustTokens.STRING_LIT),
 				new IElementType[] { RustTokens.STRING_LIT }, IElementType.EMPTY_ARRAY);
 		return ret;
@@ -1,46 +1,133 @@
 package vektah.rust.folding;
 
 import com.intellij.lang.ASTNode;
-import com.intellij.lang.folding.CustomFoldingBuilder;
+import com.intellij.lang.folding.FoldingBuilderEx;
 import com.intellij.lang.folding.FoldingDescriptor;
 import com.intellij.openapi.editor.Document;
 import com.intellij.openapi.util.TextRange;
+import com.intellij.openapi.util.text.StringUtil;
 import com.intellij.psi.PsiElement;
+import com.intellij.psi.TokenType;
+import com.intellij.psi.tree.IElementType;
+import com.intellij.util.ArrayUtil;
 import org.jetbrains.annotations.NotNull;
+import vektah.rust.RustFlexAdapter;
+import vektah.rust.RustParserDefinition;
 import vektah.rust.psi.RustTokens;
 
+import java.util.ArrayList;
 import java.util.List;
 
-public class RustFoldingBuilder extends CustomFoldingBuilder {
+/**
+ * Folds small files from their tree (see RustTreeFoldingBuilder). Files larger than -Drust.folding.lexer.threshold
+ * characters (1M by default) are folded straight from the lexer in one pass instead, so that opening a big generated
+ * file doesn't wait for the parser: every multi-line brace pair, block comment and run of line doc comments gets a
+ * region. These regions all belong to the file node, which doesn't need the file to be parsed.
+ */
+public class RustFoldingBuilder extends FoldingBuilderEx {
+	public static final int LEXER_THRESHOLD = Integer.getInteger("rust.folding.lexer.threshold", 1024 * 1024);
 
+	private final RustTreeFoldingBuilder myTreeBuilder = new RustTreeFoldingBuilder();
+
+	@NotNull
 	@Override
-	protected void buildLanguageFoldRegions(@NotNull List<FoldingDescriptor> descriptors, @NotNull PsiElement root,
-											@NotNull Document document, boolean quick) {
-		recurse(root.getNode(), document, descriptors);
+	public FoldingDescriptor[] buildFoldRegions(@NotNull PsiElement root, @NotNull Document document, boolean quick) {
+		if (document.getTextLength() <= LEXER_THRESHOLD) {
+			return myTreeBuilder.buildFoldRegions(root, document, quick);
+		}
+
+		final ASTNode file = root.getNode();
+		if (file == null) {
+			return FoldingDescriptor.EMPTY;
+		}
+		final List<FoldingDescriptor> descriptors = new ArrayList<FoldingDescriptor>();
+		for (TextRange range : findRegions(document.getCharsSequence())) {
+			descriptors.add(new FoldingDescriptor(file, range));
+		}
+		return descriptors.toArray(new FoldingDescriptor[descriptors.size()]);
 	}
 
-	private void recurse(ASTNode node, Document document, List<FoldingDescriptor> descriptors) {
-		if (node.getElementType() == RustTokens.STATEMENT_BLOCK && spanMultipleLines(node, document)) {
-			descriptors.add(new FoldingDescriptor(node, node.getTextRange()));
+	/**
+	 * One pass over the tokens of text. Braces are matched with a stack of open brace offsets, an unmatched close
+	 * brace is ignored and open braces left at the end are dropped.
+	 */
+	@NotNull
+	public static List<TextRange> findRegions(@NotNull CharSequence text) {
+		final List<TextRange> regions = new ArrayList<TextRange>();
+		int[] openBraces = new int[64];
+		int depth = 0;
+		int docCommentStart = -1;
+		int docCommentEnd = -1;
+
+		final RustFlexAdapter lexer = new RustFlexAdapter(false);
+		lexer.start(text);
+		for (IElementType type; (type = lexer.getTokenType()) != null; lexer.advance()) {
+			if (type == TokenType.WHITE_SPACE) {
+				continue;
+			}
+			if (type == RustTokens.LINE_DOC_COMMENT) {
+				if (docCommentStart < 0) {
+					docCommentStart = lexer.getTokenStart();
+				}
+				docCommentEnd = lexer.getTokenEnd();
+				continue;
+			}
+			if (docCommentStart >= 0) {
+				addIfMultiline(text, docCommentStart, docCommentEnd, regions);
+				docCommentStart = -1;
+			}
+
+			if (type == RustTokens.OPEN_BRACE) {
+				if (depth == openBraces.length) {
+					openBraces = ArrayUtil.realloc(openBraces, depth * 2);
+				}
+				openBraces[depth++] = lexer.getTokenStart();
+			} else if (type == RustTokens.CLOSE_BRACE) {
+				if (depth > 0) {
+					addIfMultiline(text, openBraces[--depth], lexer.getTokenEnd(), regions);
+				}
+			} else if (type == RustTokens.BLOCK_COMMENT || type == RustTokens.BLOCK_DOC_COMMENT) {
+				addIfMultiline(text, lexer.getTokenStart(), lexer.getTokenEnd(), regions);
+			}
+		}
+		if (docCommentStart >= 0) {
+			addIfMultiline(text, docCommentStart, docCommentEnd, regions);
 		}
+		return regions;
+	}
 
-		for (ASTNode child : node.getChildren(null)) {
-			recurse(child, document, descriptors);
+	private static void addIfMultiline(CharSequence text, int start, int end, List<TextRange> regions) {
+		if (StringUtil.indexOf(text, '\n', start, end) >= 0) {
+			regions.add(new TextRange(start, end));
 		}
 	}
 
 	@Override
-	protected String getLanguagePlaceholderText(@NotNull ASTNode astNode, @NotNull TextRange textRange) {
+	public String getPlaceholderText(@NotNull ASTNode node, @NotNull TextRange range) {
+		if (node.getElementType() != RustParserDefinition.FILE) {
+			return myTreeBuilder.getPlaceholderText(node, range);
+		}
+
+		final CharSequence text = node.getChars();
+		if (StringUtil.startsWith(text, range.getStartOffset(), "//")) {
+			return text.subSequence(range.getStartOffset(), range.getStartOffset() + 3) + "...";
+		}
+		if (StringUtil.startsWith(text, range.getStartOffset(), "/**") || StringUtil.startsWith(text, range.getStartOffset(), "/*!")) {
+			return "/**...*/";
+		}
+		if (StringUtil.startsWith(text, range.getStartOffset(), "/*")) {
+			return "/*...*/";
+		}
 		return "{...}";
 	}
 
 	@Override
-	protected boolean isRegionCollapsedByDefault(@NotNull ASTNode astNode) {
-		return false;
+	public String getPlaceholderText(@NotNull ASTNode node) {
+		return myTreeBuilder.getPlaceholderText(node);
 	}
 
-	private static boolean spanMultipleLines(@NotNull ASTNode node, @NotNull Document document) {
-		final TextRange range = node.getTextRange();
-		return document.getLineNumber(range.getStartOffset()) < document.getLineNumber(range.getEndOffset());
+	@Override
+	public boolean isCollapsedByDefault(@NotNull ASTNode node) {
+		return node.getElementType() != RustParserDefinition.FILE && myTreeBuilder.isCollapsedByDefault(node);
 	}
 }
@@ -0,0 +1,124 @@
+package vektah.rust.folding;
+
+import com.intellij.lang.ASTNode;
+import com.intellij.lang.folding.CustomFoldingBuilder;
+import com.intellij.lang.folding.FoldingDescriptor;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.util.TextRange;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.tree.IElementType;
+import com.intellij.psi.tree.TokenSet;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import vektah.rust.psi.RustTokens;
+
+import java.util.List;
+
+/**
+ * Folds brace delimited bodies, use groups and block comments that span more than one line.
+ *
+ * The tree is walked iteratively through the sibling and parent links, so deeply nested (usually generated) code
+ * neither allocates a child array per node nor overflows the stack. In quick mode, which runs when a file is opened,
+ * only the outermost bodies are folded and nothing inside them is visited. That only saves the walk: bodies are
+ * parsed together with the rest of the file either way.
+ */
+class RustTreeFoldingBuilder extends CustomFoldingBuilder {
+	private static final TokenSet BODIES = TokenSet.create(
+			RustTokens.STATEMENT_BLOCK,
+			RustTokens.IMPL_BLOCK,
+			RustTokens.MATCH_BLOCK,
+			RustTokens.STRUCT_BODY_BLOCK,
+			RustTokens.MACRO_BRACE
+	);
+	private static final TokenSet BLOCK_COMMENTS = TokenSet.create(RustTokens.BLOCK_COMMENT, RustTokens.BLOCK_DOC_COMMENT);
+
+	@Override
+	protected void buildLanguageFoldRegions(@NotNull List<FoldingDescriptor> descriptors, @NotNull PsiElement root,
+											@NotNull Document document, boolean quick) {
+		final CharSequence text = document.getCharsSequence();
+		final ASTNode rootNode = root.getNode();
+
+		ASTNode node = rootNode.getFirstChildNode();
+		while (node != null) {
+			final boolean descend = visit(node, text, descriptors, quick);
+
+			final ASTNode firstChild = descend ? node.getFirstChildNode() : null;
+			if (firstChild != null) {
+				node = firstChild;
+				continue;
+			}
+			while (node != rootNode && node.getTreeNext() == null) {
+				node = node.getTreeParent();
+			}
+			node = node == rootNode ? null : node.getTreeNext();
+		}
+	}
+
+	/**
+	 * @return whether the children of the node should be visited.
+	 */
+	private static boolean visit(ASTNode node, CharSequence text, List<FoldingDescriptor> descriptors, boolean quick) {
+		final IElementType type = node.getElementType();
+
+		if (BODIES.contains(type)) {
+			addIfMultiline(node, node.getTextRange(), text, descriptors);
+			return !quick;
+		}
+		if (BLOCK_COMMENTS.contains(type)) {
+			addIfMultiline(node, node.getTextRange(), text, descriptors);
+			return false;
+		}
+		if (type == RustTokens.USE) {
+			final TextRange group = findUseGroup(node);
+			if (group != null) {
+				addIfMultiline(node, group, text, descriptors);
+			}
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * The braces of use foo::{a, b} are direct children of the use, the rules between them are private.
+	 */
+	@Nullable
+	private static TextRange findUseGroup(ASTNode use) {
+		ASTNode open = use.findChildByType(RustTokens.OPEN_BRACE);
+		if (open == null) {
+			return null;
+		}
+		ASTNode close = use.findChildByType(RustTokens.CLOSE_BRACE, open);
+		if (close == null) {
+			return null;
+		}
+		return new TextRange(open.getStartOffset(), close.getStartOffset() + close.getTextLength());
+	}
+
+	/**
+	 * Looks for a line break within the range, which for a multi-line body is found a few characters in, rather than
+	 * asking the document for the line numbers of both ends.
+	 */
+	private static void addIfMultiline(ASTNode node, TextRange range, CharSequence text, List<FoldingDescriptor> descriptors) {
+		if (StringUtil.indexOf(text, '\n', range.getStartOffset(), range.getEndOffset()) >= 0) {
+			descriptors.add(new FoldingDescriptor(node, range));
+		}
+	}
+
+	@Override
+	protected String getLanguagePlaceholderText(@NotNull ASTNode astNode, @NotNull TextRange textRange) {
+		final IElementType type = astNode.getElementType();
+		if (type == RustTokens.BLOCK_DOC_COMMENT) {
+			return "/**...*/";
+		}
+		if (type == RustTokens.BLOCK_COMMENT) {
+			return "/*...*/";
+		}
+		return "{...}";
+	}
+
+	@Override
+	protected boolean isRegionCollapsedByDefault(@NotNull ASTNode astNode) {
+		return false;
+	}
+}
@@ -0,0 +1,31 @@
+package vektah.rust.highlight;
+
+import com.intellij.codeInsight.daemon.ChangeLocalityDetector;
+import com.intellij.lang.ASTNode;
+import com.intellij.psi.PsiElement;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import vektah.rust.psi.RustFnItem;
+import vektah.rust.psi.RustTraitItem;
+import vektah.rust.psi.RustTokens;
+
+/**
+ * Nothing inside a function body can change the highlighting outside of it, so an edit in a body only marks that
+ * body dirty instead of the whole file.
+ */
+public class RustChangeLocalityDetector implements ChangeLocalityDetector {
+	@Nullable
+	@Override
+	public PsiElement getChangeHighlightingDirtyScopeFor(@NotNull PsiElement changedElement) {
+		final ASTNode node = changedElement.getNode();
+		if (node == null || node.getElementType() != RustTokens.STATEMENT_BLOCK) {
+			return null;
+		}
+
+		final PsiElement parent = changedElement.getParent();
+		if (parent instanceof RustFnItem || parent instanceof RustTraitItem) {
+			return changedElement;
+		}
+		return null;
+	}
+}
@@ -0,0 +1,294 @@
+package vektah.rust.highlight;
+
+import com.intellij.lexer.Lexer;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.editor.colors.EditorColorsScheme;
+import com.intellij.openapi.editor.colors.TextAttributesKey;
+import com.intellij.openapi.editor.event.DocumentEvent;
+import com.intellij.openapi.editor.ex.PrioritizedDocumentListener;
+import com.intellij.openapi.editor.ex.util.EditorDocumentPriorities;
+import com.intellij.openapi.editor.highlighter.EditorHighlighter;
+import com.intellij.openapi.editor.highlighter.HighlighterClient;
+import com.intellij.openapi.editor.highlighter.HighlighterIterator;
+import com.intellij.openapi.editor.markup.TextAttributes;
+import com.intellij.openapi.fileTypes.SyntaxHighlighter;
+import com.intellij.psi.tree.IElementType;
+import com.intellij.util.ArrayUtil;
+import org.jetbrains.annotations.NotNull;
+import vektah.rust.RustFlexAdapter;
+import vektah.rust.RustSyntaxHighlighter;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Editor highlighter that keeps the lexer state of every token, so that after an edit it can restart lexing right
+ * before the change and stop as soon as a token lines up with an old one in offset, type and state.
+ *
+ * LexerEditorHighlighter can't do this for us: it only remembers whether a token started in the initial state, always
+ * restarts in the initial state and only stops on a token in the initial state. Inside a long block comment that
+ * means relexing from the start of the comment to its end on every keystroke. Every state RustFlexAdapter reports
+ * can be restarted from, including the per line pieces of comments and raw strings. The only states that can't are
+ * the ones inside the string literal layer of the highlighting lexer, those are skipped back over.
+ */
+public class RustEditorHighlighter implements EditorHighlighter, PrioritizedDocumentListener {
+	private final SyntaxHighlighter myHighlighter;
+	private final Lexer myLexer;
+	private final Map<IElementType, TextAttributes> myAttributes = new HashMap<IElementType, TextAttributes>();
+
+	private EditorColorsScheme myScheme;
+	private HighlighterClient myEditor;
+
+	// one entry per token, the first myCount of each are used
+	private int myCount;
+	private int[] myStarts = ArrayUtil.EMPTY_INT_ARRAY;
+	private int[] myEnds = ArrayUtil.EMPTY_INT_ARRAY;
+	private int[] myStates = ArrayUtil.EMPTY_INT_ARRAY;
+	private IElementType[] myTypes = new IElementType[0];
+
+	public RustEditorHighlighter(@NotNull EditorColorsScheme scheme) {
+		this(scheme, new RustSyntaxHighlighter().getHighlightingLexer());
+	}
+
+	RustEditorHighlighter(@NotNull EditorColorsScheme scheme, @NotNull Lexer lexer) {
+		myHighlighter = new RustSyntaxHighlighter();
+		myLexer = lexer;
+		myScheme = scheme;
+	}
+
+	@Override
+	public synchronized void setText(@NotNull CharSequence text) {
+		myCount = 0;
+		ensureCapacity(Math.max(16, text.length() / 4));
+
+		myLexer.start(text, 0, text.length(), 0);
+		while (myLexer.getTokenType() != null) {
+			add(myLexer.getTokenStart(), myLexer.getTokenEnd(), myLexer.getTokenType(), myLexer.getState());
+			myLexer.advance();
+		}
+	}
+
+	@Override
+	public void beforeDocumentChange(DocumentEvent event) {
+	}
+
+	@Override
+	public synchronized void documentChanged(DocumentEvent event) {
+		final CharSequence text = event.getDocument().getCharsSequence();
+		if (myCount == 0) {
+			setText(text);
+			repaint(0, text.length());
+			return;
+		}
+
+		final int changeStart = event.getOffset();
+		final int changeEnd = changeStart + event.getNewLength();
+		final int shift = event.getNewLength() - event.getOldLength();
+
+		// The token before the one that contains the change can grow into it, restart from there or earlier
+		int restartIndex = Math.max(0, findIndex(changeStart) - 1);
+		while (restartIndex > 0 && !RustFlexAdapter.isRestartableState(myStates[restartIndex])) {
+			restartIndex--;
+		}
+		final int restartOffset = myStarts[restartIndex];
+
+		int oldIndex = restartIndex;
+		int newCount = 0;
+		int[] newStarts = new int[16];
+		int[] newEnds = new int[16];
+		int[] newStates = new int[16];
+		IElementType[] newTypes = new IElementType[16];
+		int stopOffset = text.length();
+
+		myLexer.start(text, restartOffset, text.length(), myStates[restartIndex]);
+		while (myLexer.getTokenType() != null) {
+			final int start = myLexer.getTokenStart();
+			final IElementType type = myLexer.getTokenType();
+			final int state = myLexer.getState();
+
+			if (start >= changeEnd) {
+				final int oldStart = start - shift;
+				while (oldIndex < myCount && myStarts[oldIndex] < oldStart) {
+					oldIndex++;
+				}
+				if (oldIndex < myCount && myStarts[oldIndex] == oldStart && myTypes[oldIndex] == type && myStates[oldIndex] == state) {
+					stopOffset = start;
+					break;
+				}
+			}
+
+			if (newCount == newStarts.length) {
+				newStarts = ArrayUtil.realloc(newStarts, newCount * 2);
+				newEnds = ArrayUtil.realloc(newEnds, newCount * 2);
+				newStates = ArrayUtil.realloc(newStates, newCount * 2);
+				newTypes = ArrayUtil.realloc(newTypes, newCount * 2, IElementType.ARRAY_FACTORY);
+			}
+			newStarts[newCount] = start;
+			newEnds[newCount] = myLexer.getTokenEnd();
+			newStates[newCount] = state;
+			newTypes[newCount] = type;
+			newCount++;
+			myLexer.advance();
+		}
+		if (stopOffset == text.length()) {
+			oldIndex = myCount;
+		}
+
+		// Replace the tokens [restartIndex, oldIndex) with the new ones and move the rest by the length change
+		final int tail = myCount - oldIndex;
+		final int count = restartIndex + newCount + tail;
+		if (count > myStarts.length) {
+			ensureCapacity(count + count / 4);
+		}
+		final int tailStart = restartIndex + newCount;
+		System.arraycopy(myStarts, oldIndex, myStarts, tailStart, tail);
+		System.arraycopy(myEnds, oldIndex, myEnds, tailStart, tail);
+		System.arraycopy(myStates, oldIndex, myStates, tailStart, tail);
+		System.arraycopy(myTypes, oldIndex, myTypes, tailStart, tail);
+		System.arraycopy(newStarts, 0, myStarts, restartIndex, newCount);
+		System.arraycopy(newEnds, 0, myEnds, restartIndex, newCount);
+		System.arraycopy(newStates, 0, myStates, restartIndex, newCount);
+		System.arraycopy(newTypes, 0, myTypes, restartIndex, newCount);
+		if (shift != 0) {
+			for (int i = tailStart; i < count; i++) {
+				myStarts[i] += shift;
+				myEnds[i] += shift;
+			}
+		}
+		for (int i = count; i < myCount; i++) {
+			myTypes[i] = null;
+		}
+		myCount = count;
+
+		repaint(restartOffset, stopOffset);
+	}
+
+	@Override
+	public int getPriority() {
+		return EditorDocumentPriorities.LEXER_EDITOR;
+	}
+
+	@NotNull
+	@Override
+	public synchronized HighlighterIterator createIterator(int startOffset) {
+		return new Iterator(Math.max(0, findIndex(startOffset)));
+	}
+
+	@Override
+	public void setEditor(@NotNull HighlighterClient editor) {
+		myEditor = editor;
+	}
+
+	@Override
+	public synchronized void setColorScheme(@NotNull EditorColorsScheme scheme) {
+		myScheme = scheme;
+		myAttributes.clear();
+	}
+
+	private void repaint(int start, int end) {
+		if (myEditor != null) {
+			myEditor.repaint(start, end);
+		}
+	}
+
+	/**
+	 * @return the index of the last token that starts at or before offset, -1 if there are no tokens.
+	 */
+	private int findIndex(int offset) {
+		int low = 0;
+		int high = myCount - 1;
+		while (low <= high) {
+			final int middle = (low + high) >>> 1;
+			if (myStarts[middle] <= offset) {
+				low = middle + 1;
+			} else {
+				high = middle - 1;
+			}
+		}
+		return Math.min(high, myCount - 1);
+	}
+
+	private void add(int start, int end, IElementType type, int state) {
+		if (myCount == myStarts.length) {
+			ensureCapacity(myCount * 2);
+		}
+		myStarts[myCount] = start;
+		myEnds[myCount] = end;
+		myTypes[myCount] = type;
+		myStates[myCount] = state;
+		myCount++;
+	}
+
+	private void ensureCapacity(int capacity) {
+		if (capacity <= myStarts.length) {
+			return;
+		}
+		myStarts = ArrayUtil.realloc(myStarts, capacity);
+		myEnds = ArrayUtil.realloc(myEnds, capacity);
+		myStates = ArrayUtil.realloc(myStates, capacity);
+		myTypes = ArrayUtil.realloc(myTypes, capacity, IElementType.ARRAY_FACTORY);
+	}
+
+	private synchronized TextAttributes getAttributes(IElementType type) {
+		TextAttributes attributes = myAttributes.get(type);
+		if (attributes == null) {
+			attributes = new TextAttributes();
+			for (TextAttributesKey key : myHighlighter.getTokenHighlights(type)) {
+				final TextAttributes keyAttributes = myScheme.getAttributes(key);
+				if (keyAttributes != null) {
+					attributes = TextAttributes.merge(attributes, keyAttributes);
+				}
+			}
+			myAttributes.put(type, attributes);
+		}
+		return attributes;
+	}
+
+	private class Iterator implements HighlighterIterator {
+		private int myIndex;
+
+		Iterator(int index) {
+			myIndex = index;
+		}
+
+		@Override
+		public TextAttributes getTextAttributes() {
+			return getAttributes(getTokenType());
+		}
+
+		@Override
+		public int getStart() {
+			return myStarts[myIndex];
+		}
+
+		@Override
+		public int getEnd() {
+			return myEnds[myIndex];
+		}
+
+		@Override
+		public IElementType getTokenType() {
+			return myTypes[myIndex];
+		}
+
+		@Override
+		public void advance() {
+			myIndex++;
+		}
+
+		@Override
+		public void retreat() {
+			myIndex--;
+		}
+
+		@Override
+		public boolean atEnd() {
+			return myIndex < 0 || myIndex >= myCount;
+		}
+
+		@Override
+		public Document getDocument() {
+			return myEditor != null ? myEditor.getDocument() : null;
+		}
+	}
+}
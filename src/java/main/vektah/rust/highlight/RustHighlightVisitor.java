@@ -0,0 +1,72 @@
+package vektah.rust.highlight;
+
+import com.intellij.codeInsight.daemon.impl.HighlightInfo;
+import com.intellij.codeInsight.daemon.impl.HighlightInfoType;
+import com.intellij.codeInsight.daemon.impl.HighlightVisitor;
+import com.intellij.codeInsight.daemon.impl.analysis.HighlightInfoHolder;
+import com.intellij.lang.ASTNode;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.tree.IElementType;
+import org.jetbrains.annotations.NotNull;
+import vektah.rust.RustSyntaxHighlighter;
+import vektah.rust.i18n.RustBundle;
+import vektah.rust.psi.RustFile;
+import vektah.rust.psi.RustTokens;
+
+/**
+ * Attribute and empty trait bound highlighting. The general highlighting pass walks the elements in the dirty range
+ * once and hands each of them to every visitor, so this only has to compare the element type with the two it cares
+ * about. How small that range is after an edit is up to RustChangeLocalityDetector.
+ */
+public class RustHighlightVisitor implements HighlightVisitor {
+	private HighlightInfoHolder myHolder;
+
+	@Override
+	public boolean suitableForFile(@NotNull PsiFile file) {
+		return file instanceof RustFile;
+	}
+
+	@Override
+	public void visit(@NotNull PsiElement element) {
+		final ASTNode node = element.getNode();
+		if (node == null) {
+			return;
+		}
+
+		final IElementType type = node.getElementType();
+		if (type == RustTokens.ATTRIBUTE) {
+			myHolder.add(HighlightInfo.newHighlightInfo(HighlightInfoType.INFORMATION)
+					.range(element)
+					.textAttributes(RustSyntaxHighlighter.ATTRIBUTE)
+					.create());
+		} else if (type == RustTokens.TRAIT_BOUNDS && node.getTextLength() == 1) {
+			myHolder.add(HighlightInfo.newHighlightInfo(HighlightInfoType.WEAK_WARNING)
+					.range(element)
+					.descriptionAndTooltip(RustBundle.message("annotator.warning.bounds"))
+					.create());
+		}
+	}
+
+	@Override
+	public boolean analyze(@NotNull PsiFile file, boolean updateWholeFile, @NotNull HighlightInfoHolder holder, @NotNull Runnable action) {
+		myHolder = holder;
+		try {
+			action.run();
+		} finally {
+			myHolder = null;
+		}
+		return true;
+	}
+
+	@NotNull
+	@Override
+	public HighlightVisitor clone() {
+		return new RustHighlightVisitor();
+	}
+
+	@Override
+	public int order() {
+		return 0;
+	}
+}
@@ -0,0 +1,71 @@
+package vektah.rust.ide.builder;
+
+import com.intellij.compiler.CompilerMessageImpl;
+import com.intellij.compiler.ProblemsView;
+import com.intellij.compiler.server.DefaultMessageHandler;
+import com.intellij.openapi.compiler.CompilerMessage;
+import com.intellij.openapi.compiler.CompilerMessageCategory;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.vfs.LocalFileSystem;
+import com.intellij.openapi.vfs.VirtualFile;
+import org.jetbrains.jps.api.CmdlineRemoteProto;
+import org.jetbrains.jps.api.CmdlineRemoteProto.Message.BuilderMessage.CompileMessage.Kind;
+
+import java.util.UUID;
+
+/**
+ * Handles the messages of builds started by auto-make. Nobody is looking at a Messages view for those, so errors go
+ * to the Problems view instead, replacing the ones from the previous auto-make once the build is over.
+ */
+class RustAutoMakeMessageHandler extends DefaultMessageHandler {
+	private final Project myProject;
+
+	RustAutoMakeMessageHandler(Project project) {
+		super(project);
+		myProject = project;
+	}
+
+	@Override
+	public void buildStarted(UUID sessionId) {
+	}
+
+	@Override
+	protected void handleCompileMessage(UUID sessionId, CmdlineRemoteProto.Message.BuilderMessage.CompileMessage message) {
+		if (myProject.isDisposed() || message.getKind() != Kind.ERROR) {
+			return;
+		}
+
+		VirtualFile file = null;
+		if (message.hasSourceFilePath()) {
+			file = LocalFileSystem.getInstance().findFileByPath(FileUtil.toSystemIndependentName(message.getSourceFilePath()));
+		}
+		final int line = message.hasLine() ? (int) message.getLine() : -1;
+		final int column = message.hasColumn() ? (int) message.getColumn() : -1;
+		final CompilerMessage compilerMessage = new CompilerMessageImpl(myProject, CompilerMessageCategory.ERROR, message.getText(), file, line, column, null);
+		ProblemsView.SERVICE.getInstance(myProject).addMessage(compilerMessage, sessionId);
+	}
+
+	@Override
+	protected void handleBuildEvent(UUID sessionId, CmdlineRemoteProto.Message.BuilderMessage.BuildEvent event) {
+	}
+
+	@Override
+	public void handleFailure(UUID sessionId, CmdlineRemoteProto.Message.Failure failure) {
+		if (myProject.isDisposed()) {
+			return;
+		}
+		final CompilerMessage compilerMessage = new CompilerMessageImpl(myProject, CompilerMessageCategory.ERROR, failure.getDescription());
+		ProblemsView.SERVICE.getInstance(myProject).addMessage(compilerMessage, sessionId);
+	}
+
+	@Override
+	public void sessionTerminated(UUID sessionId) {
+		if (myProject.isDisposed()) {
+			return;
+		}
+		final ProblemsView view = ProblemsView.SERVICE.getInstance(myProject);
+		view.clearProgress();
+		view.clearOldMessages(null, sessionId);
+	}
+}
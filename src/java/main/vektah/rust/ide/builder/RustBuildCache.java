@@ -0,0 +1,308 @@
+package vektah.rust.ide.builder;
+
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.util.text.StringUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * Binaries and libraries rustc built before, addressed by everything that went into them, so that switching branches
+ * back and forth or building another checkout of the same sources doesn't run rustc for inputs it has already seen.
+ *
+ * The inputs are only known once rustc has written its dep-info file, so a lookup is two steps. The rustc version and
+ * the command line (with the project directory taken out, so checkouts share entries) select a manifest listing the
+ * input sets seen for that command line. The first set whose files all still have the recorded content names the
+ * artifact to copy.
+ *
+ * Artifacts are evicted least recently used first once they take more than the disk budget, which defaults to 1 GB
+ * and can be changed with -Drust.build.cache.size=megabytes. 0 turns the cache off.
+ */
+class RustBuildCache {
+	private static final Logger LOG = Logger.getInstance(RustBuildCache.class);
+
+	public static final long DEFAULT_MAX_SIZE = Long.getLong("rust.build.cache.size", 1024L) * 1024L * 1024L;
+
+	private static final int VERSION = 1;
+	// input sets remembered per command line, most recently stored first
+	private static final int MAX_MANIFEST_ENTRIES = 16;
+	private static final String PROJECT_DIR_MACRO = "$PROJECT_DIR$";
+
+	private final File myManifestDirectory;
+	private final File myArtifactDirectory;
+	private final long myMaxSize;
+
+	RustBuildCache(@NotNull File systemDirectory, long maxSize) {
+		final File cacheDirectory = new File(systemDirectory, "rust-build-cache");
+		myManifestDirectory = new File(cacheDirectory, "manifests");
+		myArtifactDirectory = new File(cacheDirectory, "artifacts");
+		myMaxSize = maxSize;
+	}
+
+	public boolean isEnabled() {
+		return myMaxSize > 0;
+	}
+
+	@NotNull
+	public static String createKey(@NotNull String rustcVersion, @NotNull String commandLine, @NotNull File baseDirectory) {
+		final String path = baseDirectory.getAbsolutePath();
+		return md5(VERSION + "\n" + rustcVersion + "\n" + commandLine.replace(path, PROJECT_DIR_MACRO));
+	}
+
+	/**
+	 * Copies the artifact built from the current content of the inputs to output.
+	 *
+	 * @return the inputs of the artifact, or null if there isn't one.
+	 */
+	@Nullable
+	public List<File> restore(@NotNull String key, @NotNull File baseDirectory, @NotNull File output) {
+		final List<Entry> entries;
+		synchronized (this) {
+			entries = readManifest(key);
+		}
+
+		// the same file tends to be an input of every entry, hash it once
+		final Map<String, String> knownHashes = new HashMap<String, String>();
+		for (Entry entry : entries) {
+			final List<File> inputs = entry.matches(baseDirectory, knownHashes);
+			if (inputs == null) {
+				continue;
+			}
+
+			synchronized (this) {
+				final File artifact = new File(myArtifactDirectory, entry.artifactId);
+				if (!artifact.isFile()) {
+					continue;
+				}
+				try {
+					FileUtil.copy(artifact, output);
+					if (artifact.canExecute() && !output.setExecutable(true)) {
+						throw new IOException("Cannot make " + output + " executable");
+					}
+					// recently used
+					artifact.setLastModified(System.currentTimeMillis());
+					return inputs;
+				}
+				catch (IOException e) {
+					LOG.info("Cannot restore " + output + " from the build cache", e);
+					FileUtil.delete(output);
+					return null;
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Adds a freshly built output. Nothing is stored if an input was modified after the build started, since the
+	 * artifact might not match the content we'd record for it.
+	 */
+	public void store(@NotNull String key, @NotNull File baseDirectory, @NotNull File output, @NotNull List<File> inputs, long buildStarted) {
+		try {
+			final Entry entry = new Entry(inputs.size());
+			final StringBuilder artifactKey = new StringBuilder(key);
+			for (int i = 0; i < inputs.size(); i++) {
+				final File input = inputs.get(i);
+				entry.paths[i] = toCachePath(input, baseDirectory);
+				entry.hashes[i] = RustUpToDateChecker.hash(input);
+				if (input.lastModified() >= buildStarted) {
+					return;
+				}
+				artifactKey.append('\n').append(entry.paths[i]).append(' ').append(entry.hashes[i]);
+			}
+			entry.artifactId = md5(artifactKey.toString());
+
+			synchronized (this) {
+				final File artifact = new File(myArtifactDirectory, entry.artifactId);
+				if (!artifact.isFile()) {
+					FileUtil.copy(output, artifact);
+				}
+				artifact.setLastModified(System.currentTimeMillis());
+
+				final List<Entry> entries = readManifest(key);
+				for (Iterator<Entry> it = entries.iterator(); it.hasNext(); ) {
+					if (it.next().artifactId.equals(entry.artifactId)) {
+						it.remove();
+					}
+				}
+				entries.add(0, entry);
+				writeManifest(key, entries.subList(0, Math.min(entries.size(), MAX_MANIFEST_ENTRIES)));
+
+				evict();
+			}
+		}
+		catch (IOException e) {
+			LOG.info("Cannot store " + output + " in the build cache", e);
+		}
+	}
+
+	/**
+	 * Deletes the least recently used artifacts until the rest fit into the budget. Manifest entries of deleted
+	 * artifacts are left alone, they are just misses.
+	 */
+	private void evict() {
+		final File[] artifacts = myArtifactDirectory.listFiles();
+		if (artifacts == null) {
+			return;
+		}
+
+		long size = 0;
+		for (File artifact : artifacts) {
+			size += artifact.length();
+		}
+		if (size <= myMaxSize) {
+			return;
+		}
+
+		Arrays.sort(artifacts, new Comparator<File>() {
+			@Override
+			public int compare(File o1, File o2) {
+				final long l1 = o1.lastModified();
+				final long l2 = o2.lastModified();
+				return l1 < l2 ? -1 : l1 == l2 ? 0 : 1;
+			}
+		});
+		for (File artifact : artifacts) {
+			if (size <= myMaxSize) {
+				break;
+			}
+			size -= artifact.length();
+			FileUtil.delete(artifact);
+		}
+	}
+
+	@NotNull
+	private List<Entry> readManifest(String key) {
+		final List<Entry> entries = new ArrayList<Entry>();
+		final File manifest = new File(myManifestDirectory, key);
+		if (!manifest.isFile()) {
+			return entries;
+		}
+
+		try {
+			final DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(manifest)));
+			try {
+				if (in.readInt() != VERSION) {
+					return entries;
+				}
+				final int count = in.readInt();
+				for (int i = 0; i < count; i++) {
+					final String artifactId = in.readUTF();
+					final Entry entry = new Entry(in.readInt());
+					entry.artifactId = artifactId;
+					for (int j = 0; j < entry.paths.length; j++) {
+						entry.paths[j] = in.readUTF();
+						entry.hashes[j] = in.readUTF();
+					}
+					entries.add(entry);
+				}
+			}
+			finally {
+				in.close();
+			}
+		}
+		catch (IOException e) {
+			LOG.info("Cannot read build cache manifest " + manifest, e);
+			entries.clear();
+		}
+		return entries;
+	}
+
+	private void writeManifest(String key, List<Entry> entries) throws IOException {
+		final File manifest = new File(myManifestDirectory, key);
+		FileUtil.createParentDirs(manifest);
+
+		final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(manifest)));
+		try {
+			out.writeInt(VERSION);
+			out.writeInt(entries.size());
+			for (Entry entry : entries) {
+				out.writeUTF(entry.artifactId);
+				out.writeInt(entry.paths.length);
+				for (int i = 0; i < entry.paths.length; i++) {
+					out.writeUTF(entry.paths[i]);
+					out.writeUTF(entry.hashes[i]);
+				}
+			}
+		}
+		finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Inputs in the project are stored relative to it, so that other checkouts can use the entry.
+	 */
+	private static String toCachePath(File file, File baseDirectory) {
+		final String relative = FileUtil.getRelativePath(baseDirectory, file);
+		if (relative != null && !relative.startsWith("..")) {
+			return PROJECT_DIR_MACRO + "/" + FileUtil.toSystemIndependentName(relative);
+		}
+		return FileUtil.toSystemIndependentName(file.getAbsolutePath());
+	}
+
+	private static File fromCachePath(String path, File baseDirectory) {
+		if (path.startsWith(PROJECT_DIR_MACRO + "/")) {
+			return new File(baseDirectory, FileUtil.toSystemDependentName(path.substring(PROJECT_DIR_MACRO.length() + 1)));
+		}
+		return new File(FileUtil.toSystemDependentName(path));
+	}
+
+	private static String md5(String text) {
+		try {
+			final MessageDigest digest = MessageDigest.getInstance("MD5");
+			return StringUtil.toHexString(digest.digest(text.getBytes("UTF-8")));
+		}
+		catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException(e);
+		}
+		catch (UnsupportedEncodingException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	private static class Entry {
+		String artifactId;
+		final String[] paths;
+		final String[] hashes;
+
+		Entry(int count) {
+			paths = new String[count];
+			hashes = new String[count];
+		}
+
+		/**
+		 * @return the inputs if they all have the recorded content, null otherwise.
+		 */
+		@Nullable
+		List<File> matches(File baseDirectory, Map<String, String> knownHashes) {
+			final List<File> inputs = new ArrayList<File>(paths.length);
+			for (int i = 0; i < paths.length; i++) {
+				final File input = fromCachePath(paths[i], baseDirectory);
+				String hash = knownHashes.get(input.getPath());
+				if (hash == null) {
+					if (!input.isFile()) {
+						return null;
+					}
+					try {
+						hash = RustUpToDateChecker.hash(input);
+					}
+					catch (IOException e) {
+						return null;
+					}
+					knownHashes.put(input.getPath(), hash);
+				}
+				if (!hash.equals(hashes[i])) {
+					return null;
+				}
+				inputs.add(input);
+			}
+			return inputs;
+		}
+	}
+}
@@ -1,49 +1,65 @@
 package vektah.rust.ide.builder;
 
+import com.intellij.compiler.CompilerWorkspaceConfiguration;
 import com.intellij.compiler.options.CompileStepBeforeRun;
 import com.intellij.compiler.server.BuildManagerListener;
 import com.intellij.compiler.server.BuilderMessageHandler;
 import com.intellij.compiler.server.DefaultMessageHandler;
 import com.intellij.compiler.server.impl.BuildProcessClasspathManager;
+import com.intellij.concurrency.JobScheduler;
 import com.intellij.execution.ExecutionException;
+import com.intellij.execution.RunManager;
+import com.intellij.execution.RunnerAndConfigurationSettings;
 import com.intellij.execution.configurations.GeneralCommandLine;
 import com.intellij.execution.configurations.RunConfiguration;
 import com.intellij.execution.process.OSProcessHandler;
 import com.intellij.execution.process.ProcessAdapter;
 import com.intellij.execution.process.ProcessEvent;
 import com.intellij.execution.process.ProcessOutputTypes;
+import com.intellij.execution.process.UnixProcessManager;
 import com.intellij.ide.DataManager;
 import com.intellij.ide.PowerSaveMode;
 import com.intellij.openapi.actionSystem.CommonDataKeys;
+import com.intellij.openapi.application.AccessToken;
 import com.intellij.openapi.application.Application;
 import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.application.PathManager;
+import com.intellij.openapi.application.ReadAction;
 import com.intellij.openapi.compiler.CompileScope;
-import com.intellij.openapi.compiler.CompilerPaths;
+import com.intellij.openapi.compiler.CompilerManager;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.editor.EditorFactory;
 import com.intellij.openapi.editor.event.DocumentAdapter;
 import com.intellij.openapi.editor.event.DocumentEvent;
+import com.intellij.openapi.module.Module;
+import com.intellij.openapi.module.ModuleManager;
+import com.intellij.openapi.module.ModuleType;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.project.ProjectCoreUtil;
 import com.intellij.openapi.project.ProjectManager;
 import com.intellij.openapi.projectRoots.Sdk;
-import com.intellij.openapi.roots.CompilerModuleExtension;
 import com.intellij.openapi.roots.CompilerProjectExtension;
 import com.intellij.openapi.roots.ProjectFileIndex;
 import com.intellij.openapi.roots.ProjectRootManager;
+import com.intellij.openapi.util.Computable;
 import com.intellij.openapi.util.Key;
 import com.intellij.openapi.util.ShutDownTracker;
+import com.intellij.openapi.util.SystemInfo;
 import com.intellij.openapi.util.text.StringUtil;
 import com.intellij.openapi.vfs.CharsetToolkit;
+import com.intellij.openapi.vfs.LocalFileSystem;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.openapi.vfs.VirtualFileManager;
 import com.intellij.openapi.vfs.newvfs.BulkFileListener;
+import com.intellij.openapi.vfs.newvfs.events.VFileDeleteEvent;
 import com.intellij.openapi.vfs.newvfs.events.VFileEvent;
 import com.intellij.openapi.wm.IdeFrame;
+import com.intellij.util.Alarm;
 import com.intellij.util.SmartList;
 import com.intellij.util.concurrency.SequentialTaskExecutor;
+import com.intellij.util.containers.MultiMap;
 import com.intellij.util.messages.MessageBusConnection;
+import gnu.trove.THashMap;
 import gnu.trove.THashSet;
 import io.netty.channel.Channel;
 import org.jetbrains.annotations.NotNull;
@@ -53,6 +69,7 @@ import org.jetbrains.io.ChannelRegistrar;
 import org.jetbrains.jps.api.CmdlineProtoUtil;
 import org.jetbrains.jps.api.CmdlineRemoteProto;
 import org.jetbrains.jps.api.RequestFuture;
+import vektah.rust.ide.module.RustModuleType;
 import vektah.rust.ide.runner.RustConfiguration;
 import vektah.rust.ide.sdk.RustSdkData;
 import vektah.rust.ide.sdk.RustSdkType;
@@ -64,10 +81,17 @@ import java.io.IOException;
 import java.nio.charset.Charset;
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class RustBuildManager implements com.intellij.openapi.components.ApplicationComponent {
 	private static final Logger LOG = Logger.getInstance(RustBuildManager.class);
 
+	// how long rustc gets to exit after being interrupted before its process tree is killed
+	private static final long CANCEL_GRACE_PERIOD_MS = 1000L;
+	// quiet period after the last save before auto-make starts, -Drust.automake.delay=ms
+	private static final int AUTO_MAKE_DELAY_MS = Math.max(100, Integer.getInteger("rust.automake.delay", 300));
+
 	private final ProjectManager myProjectManager;
 	private final boolean IS_UNIT_TEST_MODE;
 	private final Charset mySystemCharset;
@@ -75,11 +99,52 @@ public class RustBuildManager implements com.intellij.openapi.components.Applica
 
 	private final ChannelRegistrar myChannelRegistrar = new ChannelRegistrar();
 	private final Map<RequestFuture, Project> myAutomakeFutures = Collections.synchronizedMap(new HashMap<RequestFuture, Project>());
+	private final Alarm myAutoMakeAlarm = new Alarm(Alarm.ThreadToUse.SHARED_THREAD);
+	private final AtomicBoolean myAutoMakeInProgress = new AtomicBoolean(false);
+	private final Runnable myAutoMakeTask = new Runnable() {
+		@Override
+		public void run() {
+			if (myAutoMakeInProgress.getAndSet(true)) {
+				// the previous one has been cancelled and is winding down, try again once it has
+				addAutoMakeRequest();
+				return;
+			}
+			try {
+				ApplicationManager.getApplication().executeOnPooledThread(new Runnable() {
+					@Override
+					public void run() {
+						try {
+							runAutoMake();
+						}
+						finally {
+							myAutoMakeInProgress.set(false);
+						}
+					}
+				});
+			}
+			catch (Throwable e) {
+				myAutoMakeInProgress.set(false);
+				LOG.error(e);
+			}
+		}
+	};
+	// session -> running rustcs, so that cancelling a build can stop them. Guarded by itself
+	private final MultiMap<UUID, OSProcessHandler> myBuildProcesses = new MultiMap<UUID, OSProcessHandler>();
+	// output path -> build writing it
 	private final Map<String, RequestFuture> myBuildsInProgress = Collections.synchronizedMap(new HashMap<String, RequestFuture>());
 	private final BuildProcessClasspathManager myClasspathManager = new BuildProcessClasspathManager();
 	private final SequentialTaskExecutor myRequestsProcessor = new SequentialTaskExecutor(PooledThreadExecutor.INSTANCE);
+	private final RustBuildScheduler myBuildScheduler = new RustBuildScheduler(PooledThreadExecutor.INSTANCE, RustBuildScheduler.DEFAULT_PARALLELISM);
 	private final Map<String, ProjectData> myProjectDataMap = Collections.synchronizedMap(new HashMap<String, ProjectData>());
 	private final RustBuildMessageDispatcher myMessageDispatcher = new RustBuildMessageDispatcher();
+	private final RustUpToDateChecker myUpToDateChecker;
+	private final RustBuildCache myBuildCache;
+	private final RustSourceFileCache mySourceFileCache = new RustSourceFileCache();
+
+	// VFS changes waiting to be handed to every ProjectData, guarded by itself
+	private final Set<String> myPendingChanged = new THashSet<String>();
+	private final Set<String> myPendingDeleted = new THashSet<String>();
+	private boolean myPendingFlushScheduled;
 
 	public RustBuildManager(final ProjectManager projectManager) {
 		final Application application = ApplicationManager.getApplication();
@@ -95,15 +160,37 @@ public class RustBuildManager implements com.intellij.openapi.components.Applica
 			LOG.info(e);
 		}
 		mySystemDirectory = system;
+		myUpToDateChecker = new RustUpToDateChecker(mySystemDirectory);
+		myBuildCache = new RustBuildCache(mySystemDirectory, RustBuildCache.DEFAULT_MAX_SIZE);
 
 //		projectManager.addProjectManagerListener(new ProjectWatcher());
 
 		final MessageBusConnection conn = application.getMessageBus().connect();
 		conn.subscribe(VirtualFileManager.VFS_CHANGES, new BulkFileListener.Adapter() {
+			@Override
+			public void before(@NotNull List<? extends VFileEvent> events) {
+				// deleted files are only still in the project index before the event is applied
+				final List<String> deleted = new SmartList<String>();
+				for (VFileEvent event : events) {
+					if (event instanceof VFileDeleteEvent && isInOpenProjectContent(event.getFile())) {
+						deleted.add(event.getPath());
+					}
+				}
+				enqueueChanges(Collections.<String>emptyList(), deleted);
+			}
+
 			@Override
 			public void after(@NotNull List<? extends VFileEvent> events) {
+				final List<String> changed = new SmartList<String>();
+				for (VFileEvent event : events) {
+					if (!(event instanceof VFileDeleteEvent) && isInOpenProjectContent(event.getFile())) {
+						changed.add(event.getPath());
+					}
+				}
+				enqueueChanges(changed, Collections.<String>emptyList());
+
 				if (shouldTriggerMake(events)) {
-//					scheduleAutoMake();
+					scheduleAutoMake();
 				}
 			}
 
@@ -214,7 +301,147 @@ public class RustBuildManager implements com.intellij.openapi.components.Applica
 		return project != null && !project.isDisposed() && !project.isDefault() && project.isInitialized();
 	}
 
+	private boolean isInOpenProjectContent(@Nullable VirtualFile file) {
+		if (file == null || ProjectCoreUtil.isProjectOrWorkspaceFile(file)) {
+			return false;
+		}
+
+		// output directories are excluded, so writing a binary doesn't count as a change
+		for (Project project : getOpenProjects()) {
+			if (ProjectRootManager.getInstance(project).getFileIndex().isInContent(file)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Collects changed paths and hands them to the projects from the requests queue. A branch switch produces lots of
+	 * VFS events in quick succession, they all end up in a single update (and so a single FSEvent) as long as the
+	 * queue hasn't gotten round to the previous one yet.
+	 */
+	private void enqueueChanges(Collection<String> changed, Collection<String> deleted) {
+		if (changed.isEmpty() && deleted.isEmpty()) {
+			return;
+		}
+
+		synchronized (myPendingChanged) {
+			for (String path : changed) {
+				myPendingDeleted.remove(path);
+				myPendingChanged.add(path);
+			}
+			for (String path : deleted) {
+				myPendingChanged.remove(path);
+				myPendingDeleted.add(path);
+			}
+			if (myPendingFlushScheduled) {
+				return;
+			}
+			myPendingFlushScheduled = true;
+		}
+
+		runCommand(new Runnable() {
+			@Override
+			public void run() {
+				final List<String> changed;
+				final List<String> deleted;
+				synchronized (myPendingChanged) {
+					changed = new ArrayList<String>(myPendingChanged);
+					deleted = new ArrayList<String>(myPendingDeleted);
+					myPendingChanged.clear();
+					myPendingDeleted.clear();
+					myPendingFlushScheduled = false;
+				}
+
+				synchronized (myProjectDataMap) {
+					for (ProjectData data : myProjectDataMap.values()) {
+						data.addDeleted(deleted);
+						data.addChanged(changed);
+					}
+				}
+			}
+		});
+	}
+
+	/**
+	 * Called for every save. Each save cancels the auto-make that is running, since it is building stale sources, and
+	 * pushes the next one back until saving has been quiet for a moment.
+	 */
+	private void scheduleAutoMake() {
+		if (IS_UNIT_TEST_MODE || PowerSaveMode.isEnabled()) {
+			return;
+		}
+
+		final Project project = getCurrentContextProject();
+		if (project == null || !canStartAutoMake(project)) {
+			return;
+		}
+		cancelAutoMakeTasks(project);
+		addAutoMakeRequest();
+	}
+
+	private void addAutoMakeRequest() {
+		myAutoMakeAlarm.cancelAllRequests();
+		myAutoMakeAlarm.addRequest(myAutoMakeTask, AUTO_MAKE_DELAY_MS);
+	}
+
+	private void runAutoMake() {
+		final Project project = getCurrentContextProject();
+		if (project == null || PowerSaveMode.isEnabled() || !canStartAutoMake(project)) {
+			return;
+		}
+
+		final CompileScope scope = createAutoMakeScope(project);
+		if (scope == null) {
+			return;
+		}
+
+		final RequestFuture future = scheduleBuild(
+				project, false, true, false, scope, Collections.<String>emptyList(),
+				Collections.<String, String>emptyMap(), new RustAutoMakeMessageHandler(project)
+		);
+		if (future != null) {
+			myAutomakeFutures.put(future, project);
+			try {
+				future.waitFor();
+			}
+			finally {
+				myAutomakeFutures.remove(future);
+			}
+		}
+	}
+
+	/**
+	 * Auto-make builds whatever the selected Rust run configuration would build, or the whole project if there isn't
+	 * one.
+	 */
+	@Nullable
+	private static CompileScope createAutoMakeScope(final Project project) {
+		return ApplicationManager.getApplication().runReadAction(new Computable<CompileScope>() {
+			@Override
+			public CompileScope compute() {
+				if (project.isDisposed()) {
+					return null;
+				}
+				final RunnerAndConfigurationSettings selected = RunManager.getInstance(project).getSelectedConfiguration();
+				if (selected == null || !(selected.getConfiguration() instanceof RustConfiguration)) {
+					return CompilerManager.getInstance(project).createProjectCompileScope(project);
+				}
+
+				final RustConfiguration configuration = (RustConfiguration) selected.getConfiguration();
+				final CompileScope scope = CompilerManager.getInstance(project).createModulesCompileScope(configuration.getModules(), false);
+				scope.putUserData(CompileStepBeforeRun.RUN_CONFIGURATION, configuration);
+				return scope;
+			}
+		});
+	}
+
+	private static boolean canStartAutoMake(@NotNull Project project) {
+		return !project.isDisposed() && CompilerWorkspaceConfiguration.getInstance(project).MAKE_PROJECT_ON_SAVE;
+	}
+
 	private void stopListening() {
+		myAutoMakeAlarm.cancelAllRequests();
 		myChannelRegistrar.close();
 	}
 
@@ -255,8 +482,7 @@ public class RustBuildManager implements com.intellij.openapi.components.Applica
 		final String projectPath = getProjectPath(project);
 		final String runConfigurationName = userData.get(CompileStepBeforeRun.RUN_CONFIGURATION.toString());
 		final UUID sessionId = UUID.randomUUID();
-//		final boolean isAutomake = messageHandler instanceof AutoMakeMessageHandler;
-		final boolean isAutomake = false;   // FIXME
+		final boolean isAutomake = messageHandler instanceof RustAutoMakeMessageHandler;
 		final BuilderMessageHandler handler = new MessageHandlerWrapper(messageHandler) {
 			@Override
 			public void buildStarted(UUID sessionId) {
@@ -290,13 +516,16 @@ public class RustBuildManager implements com.intellij.openapi.components.Applica
 				@Override
 				public void cancel(RequestFuture<BuilderMessageHandler> future) throws Exception {
 					myMessageDispatcher.cancelSession(future.getRequestID());
+					stopBuildProcesses(future.getRequestID());
 				}
 			});
+			final RustBuildMetrics metrics = new RustBuildMetrics(sessionId);
 			// by using the same queue that processes events we ensure that
 			// the build will be aware of all events that have happened before this request
 			runCommand(new Runnable() {
 				@Override
 				public void run() {
+					metrics.dequeued();
 					if (future.isCancelled() || project.isDisposed()) {
 						handler.sessionTerminated(sessionId);
 						future.setDone();
@@ -307,20 +536,15 @@ public class RustBuildManager implements com.intellij.openapi.components.Applica
 							CmdlineRemoteProto.Message.ControllerMessage.GlobalSettings.newBuilder()
 									.setGlobalOptionsPath(PathManager.getOptionsPath())
 									.build();
-					CmdlineRemoteProto.Message.ControllerMessage.FSEvent currentFSChanges;
-					final SequentialTaskExecutor projectTaskQueue;
+					final ProjectData projectData;
 					synchronized (myProjectDataMap) {
 						ProjectData data = myProjectDataMap.get(projectPath);
 						if (data == null) {
-							data = new ProjectData(new SequentialTaskExecutor(PooledThreadExecutor.INSTANCE));
+							data = new ProjectData();
 							myProjectDataMap.put(projectPath, data);
 						}
-						if (isRebuild) {
-							data.dropChanges();
-						}
-						// FIXME: This doesn't do anything at the moment
-						currentFSChanges = data.getAndResetRescanFlag() ? null : data.createNextEvent();
-						projectTaskQueue = data.taskQueue;
+						data.startBuild(isRebuild);
+						projectData = data;
 					}
 
 					myMessageDispatcher.registerBuildMessageHandler(sessionId, new MessageHandlerWrapper(handler) {
@@ -336,68 +560,13 @@ public class RustBuildManager implements com.intellij.openapi.components.Applica
 					});
 
 					try {
-						projectTaskQueue.submit(new Runnable() {
-							@Override
-							public void run() {
-								Throwable execFailure = null;
-								try {
-									if (project.isDisposed()) {
-										return;
-									}
-									myBuildsInProgress.put(projectPath, future);
-									final OSProcessHandler processHandler = launchBuildProcess(project, sessionId, scope);
-									final StringBuilder stdErrOutput = new StringBuilder();
-									processHandler.addProcessListener(new ProcessAdapter() {
-										@Override
-										public void onTextAvailable(ProcessEvent event, Key outputType) {
-											// re-translate builder's output to idea.log
-											final String text = event.getText();
-											if (!StringUtil.isEmptyOrSpaces(text)) {
-												LOG.info("RUST_BUILDER_PROCESS [" + outputType.toString() + "]: " + text.trim());
-												if (ProcessOutputTypes.STDERR.equals(outputType)) {
-													stdErrOutput.append(text);
-												}
-											}
-										}
-									});
-									processHandler.startNotify();
-									final boolean terminated = processHandler.waitFor();
-									if (terminated) {
-										final int exitValue = processHandler.getProcess().exitValue();
-										if (exitValue != 0) {
-											final String msg;
-											if (stdErrOutput.length() > 0) {
-												msg = stdErrOutput.toString();
-											}
-											else {
-												msg = "Abnormal build process termination: unknown error";
-											}
-											handler.handleFailure(sessionId, CmdlineProtoUtil.createFailure(msg, null));
-										}
-									}
-									else {
-										handler.handleFailure(sessionId, CmdlineProtoUtil.createFailure("Disconnected from build process", null));
-									}
-								}
-								catch (Throwable e) {
-									execFailure = e;
-								}
-								finally {
-									myBuildsInProgress.remove(projectPath);
-									if (myMessageDispatcher.getAssociatedChannel(sessionId) == null) {
-										// either the connection has never been established (process not started or execution failed), or no messages were sent from the launched process.
-										// in this case the session cannot be unregistered by the message dispatcher
-										final BuilderMessageHandler unregistered = myMessageDispatcher.unregisterBuildMessageHandler(sessionId);
-										if (unregistered != null) {
-											if (execFailure != null) {
-												unregistered.handleFailure(sessionId, CmdlineProtoUtil.createFailure(execFailure.getMessage(), execFailure));
-											}
-											unregistered.sessionTerminated(sessionId);
-										}
-									}
-								}
-							}
-						});
+						final RustCrateGraph graph = createCrateGraph(project, scope);
+						if (graph.getTargets().isEmpty()) {
+							LOG.info("Nothing to build in " + projectPath);
+							finishSession(handler, sessionId, CmdlineRemoteProto.Message.BuilderMessage.BuildEvent.Status.UP_TO_DATE);
+							return;
+						}
+						new BuildSession(project, projectData, graph, isRebuild, handler, sessionId, future, metrics).start();
 					}
 					catch (Throwable e) {
 						final BuilderMessageHandler unregistered = myMessageDispatcher.unregisterBuildMessageHandler(sessionId);
@@ -423,7 +592,187 @@ public class RustBuildManager implements com.intellij.openapi.components.Applica
 		myRequestsProcessor.submit(command);
 	}
 
-	private OSProcessHandler launchBuildProcess(Project project, UUID sessionId, CompileScope scope) throws ExecutionException {
+	/**
+	 * Runs rustc for one target of a build, unless it is up to date. Diagnostics are reported as they are printed,
+	 * a failure rustc didn't explain is reported here.
+	 *
+	 * @param libraries every library target links against, they have all been built already
+	 */
+	private RustBuildMetrics.Status buildTarget(Project project, ProjectData projectData, RustBuildTarget target, Collection<RustBuildTarget> libraries,
+	                                            boolean isRebuild, BuilderMessageHandler handler, UUID sessionId, RequestFuture future, RustBuildMetrics metrics)
+			throws ExecutionException {
+		final File outputFile = target.getOutputFile();
+		final GeneralCommandLine cmdLine = createBuildCommandLine(project, target, libraries);
+		final String commandLine = cmdLine.getCommandLineString();
+		final long started = projectData.targetStarted(outputFile.getPath());
+		final List<File> libraryOutputs = new ArrayList<File>();
+		for (RustBuildTarget library : libraries) {
+			libraryOutputs.add(library.getOutputFile());
+		}
+
+		if (isRebuild) {
+			myUpToDateChecker.forget(outputFile);
+		}
+		else if (outputFile.exists() && isUpToDate(projectData, myUpToDateChecker, outputFile, commandLine)) {
+			LOG.info(outputFile + " is up to date, not running rustc");
+			projectData.targetBuilt(outputFile.getPath(), commandLine, true, started,
+					getWatchedInputs(project, myUpToDateChecker.getInputs(outputFile)));
+			return RustBuildMetrics.Status.UP_TO_DATE;
+		}
+
+		final File workDirectory = cmdLine.getWorkDirectory();
+		final String rustcVersion = myBuildCache.isEnabled() ? getRustcVersion(project) : null;
+		final String cacheKey = rustcVersion != null ? RustBuildCache.createKey(rustcVersion, commandLine, workDirectory) : null;
+		if (cacheKey != null && !isRebuild) {
+			final long restoreStarted = System.currentTimeMillis();
+			final List<File> inputs = myBuildCache.restore(cacheKey, workDirectory, outputFile);
+			if (inputs != null) {
+				LOG.info(outputFile + " restored from the build cache, not running rustc");
+				final boolean recorded = myUpToDateChecker.recordBuild(outputFile, commandLine, inputs, restoreStarted);
+				projectData.targetBuilt(outputFile.getPath(), commandLine, true, started, recorded ? getWatchedInputs(project, inputs) : null);
+				return RustBuildMetrics.Status.CACHED;
+			}
+		}
+
+		final long buildStarted = System.currentTimeMillis();
+		final OSProcessHandler processHandler = launchBuildProcess(cmdLine);
+		synchronized (myBuildProcesses) {
+			myBuildProcesses.putValue(sessionId, processHandler);
+		}
+		try {
+			metrics.spawned();
+			final RustDiagnosticListener diagnostics = new RustDiagnosticListener(handler, sessionId, workDirectory, mySourceFileCache, mySystemCharset);
+			processHandler.addProcessListener(diagnostics);
+			processHandler.addProcessListener(new ProcessAdapter() {
+				@Override
+				public void onTextAvailable(ProcessEvent event, Key outputType) {
+					// re-translate builder's output to idea.log, stderr is reported by the diagnostics listener
+					final String text = event.getText();
+					if (!ProcessOutputTypes.STDERR.equals(outputType) && !StringUtil.isEmptyOrSpaces(text)) {
+						LOG.info("RUST_BUILDER_PROCESS [" + outputType.toString() + "]: " + text.trim());
+					}
+				}
+			});
+			processHandler.startNotify();
+			if (future.isCancelled()) {
+				// cancelled while we were starting it
+				stopProcess(processHandler);
+			}
+			final boolean terminated = processHandler.waitFor();
+			metrics.processFinished(diagnostics.getStderrBytes(), diagnostics.getParseNanos());
+			if (!terminated) {
+				handler.handleFailure(sessionId, CmdlineProtoUtil.createFailure("Disconnected from build process", null));
+				return RustBuildMetrics.Status.FAILED;
+			}
+
+			final int exitValue = processHandler.getProcess().exitValue();
+			if (future.isCancelled()) {
+				projectData.targetBuilt(outputFile.getPath(), commandLine, false, started, null);
+				myUpToDateChecker.forget(outputFile);
+				return RustBuildMetrics.Status.CANCELED;
+			}
+			if (exitValue == 0) {
+				List<File> recorded = null;
+				try {
+					final List<File> inputs = RustUpToDateChecker.readInputs(getDepInfoFile(outputFile), libraryOutputs, workDirectory);
+					if (myUpToDateChecker.recordBuild(outputFile, commandLine, inputs, buildStarted)) {
+						recorded = inputs;
+						if (cacheKey != null) {
+							myBuildCache.store(cacheKey, workDirectory, outputFile, inputs, buildStarted);
+						}
+					}
+				}
+				catch (IOException e) {
+					LOG.info("Cannot read the dep-info file of " + outputFile, e);
+					myUpToDateChecker.forget(outputFile);
+				}
+				projectData.targetBuilt(outputFile.getPath(), commandLine, true, started, getWatchedInputs(project, recorded));
+				return RustBuildMetrics.Status.SUCCESS;
+			}
+
+			projectData.targetBuilt(outputFile.getPath(), commandLine, false, started, null);
+			myUpToDateChecker.forget(outputFile);
+			if (diagnostics.getErrorCount() == 0) {
+				final String unparsed = diagnostics.getUnparsedOutput();
+				final String msg = unparsed.isEmpty() ? "Abnormal build process termination: unknown error" : unparsed;
+				handler.handleFailure(sessionId, CmdlineProtoUtil.createFailure(msg, null));
+			}
+			// otherwise the errors are already in the messages view
+			return RustBuildMetrics.Status.ERRORS;
+		}
+		finally {
+			synchronized (myBuildProcesses) {
+				myBuildProcesses.remove(sessionId, processHandler);
+			}
+		}
+	}
+
+	/**
+	 * Reports how the build ended and terminates the session. No build process ever connects to the message
+	 * dispatcher, so the session has to be unregistered here rather than when its channel closes.
+	 */
+	private void finishSession(BuilderMessageHandler handler, UUID sessionId, CmdlineRemoteProto.Message.BuilderMessage.BuildEvent.Status status) {
+		notifyBuildCompleted(handler, sessionId, status);
+		if (myMessageDispatcher.getAssociatedChannel(sessionId) == null) {
+			final BuilderMessageHandler unregistered = myMessageDispatcher.unregisterBuildMessageHandler(sessionId);
+			if (unregistered != null) {
+				unregistered.sessionTerminated(sessionId);
+			}
+		}
+	}
+
+	private static void publishMetrics(Project project, RustBuildMetrics metrics, RustBuildMetrics.Status status) {
+		metrics.finished(status);
+		LOG.info(metrics.toString());
+		if (project.isDisposed()) {
+			return;
+		}
+		try {
+			// make sure the history exists before the first build is published, not just once the tool window opens
+			RustBuildStatistics.getInstance(project);
+			ApplicationManager.getApplication().getMessageBus().syncPublisher(RustBuildMetricsListener.TOPIC).buildFinished(project, metrics);
+		}
+		catch (Throwable e) {
+			LOG.error(e);
+		}
+	}
+
+	private void stopBuildProcesses(UUID sessionId) {
+		final List<OSProcessHandler> processHandlers;
+		synchronized (myBuildProcesses) {
+			processHandlers = new ArrayList<OSProcessHandler>(myBuildProcesses.get(sessionId));
+		}
+		for (OSProcessHandler processHandler : processHandlers) {
+			stopProcess(processHandler);
+		}
+	}
+
+	/**
+	 * Interrupts a rustc and kills its whole process tree (rustc runs the linker) if it hasn't exited after a grace
+	 * period.
+	 */
+	private static void stopProcess(final OSProcessHandler processHandler) {
+		if (processHandler.isProcessTerminated()) {
+			return;
+		}
+
+		if (SystemInfo.isUnix && UnixProcessManager.sendSigIntToProcessTree(processHandler.getProcess())) {
+			JobScheduler.getScheduler().schedule(new Runnable() {
+				@Override
+				public void run() {
+					if (!processHandler.isProcessTerminated()) {
+						LOG.info("rustc didn't exit after being interrupted, killing it");
+						processHandler.destroyProcess();
+					}
+				}
+			}, CANCEL_GRACE_PERIOD_MS, TimeUnit.MILLISECONDS);
+		}
+		else {
+			processHandler.destroyProcess();
+		}
+	}
+
+	private GeneralCommandLine createBuildCommandLine(Project project, RustBuildTarget target, Collection<RustBuildTarget> libraries) throws ExecutionException {
 		final Sdk defaultSdk = ProjectRootManager.getInstance(project).getProjectSdk();
 		if (defaultSdk == null) {
 			throw new ExecutionException("No SDK configured for this project.");
@@ -433,30 +782,37 @@ public class RustBuildManager implements com.intellij.openapi.components.Applica
 		}
 		final GeneralCommandLine cmdLine = new GeneralCommandLine();
 
-		final RunConfiguration runConfig = scope.getUserData(CompileStepBeforeRun.RUN_CONFIGURATION);
-		if (runConfig == null) {
-			throw new ExecutionException("'Run Configuration' not found. If you're trying to compile without running, that's not yet supported");
-		}
-		final RustConfiguration rustConfiguration = (RustConfiguration) runConfig;
-		final CompilerModuleExtension compilerModuleExtension = CompilerModuleExtension.getInstance(rustConfiguration.getModules()[0]);
-		if (compilerModuleExtension == null) {
-			throw new ExecutionException("Cannot find compiler module extension from module");
-		}
-
-        final String outputPathUrl = CompilerPaths.getModuleOutputPath(rustConfiguration.getModules()[0], false);
-
-		File outputPathFile = new File(outputPathUrl);
-		if (!outputPathFile.exists()) {
-			if (!outputPathFile.mkdirs()) {
-				throw new ExecutionException("Cannot create output path '" + outputPathUrl + "'");
+		final File outputFile = target.getOutputFile();
+		final File outputDirectory = outputFile.getParentFile();
+		if (!outputDirectory.exists()) {
+			if (!outputDirectory.mkdirs()) {
+				throw new ExecutionException("Cannot create output path '" + outputDirectory + "'");
 			}
 		}
 
 		cmdLine.setWorkDirectory(new File(project.getBasePath()));
 		cmdLine.setExePath(RustSdkUtil.testRustSdk(defaultSdk.getHomePath()).pathRustc);
-		cmdLine.addParameter(rustConfiguration.mainFile);
-		cmdLine.addParameters("-o", outputPathUrl.concat("/").concat(rustConfiguration.getName()));
+		cmdLine.addParameter(target.getMainFile().getPath());
+		if (target.isLibrary()) {
+			cmdLine.addParameters("--crate-type", "lib");
+		}
+		if (target.getCrateName() != null) {
+			cmdLine.addParameters("--crate-name", target.getCrateName());
+		}
+		final Set<String> libraryDirectories = new LinkedHashSet<String>();
+		for (RustBuildTarget library : libraries) {
+			libraryDirectories.add(library.getOutputFile().getParent());
+		}
+		for (String directory : libraryDirectories) {
+			cmdLine.addParameters("-L", directory);
+		}
+		cmdLine.addParameters("-o", outputFile.getPath());
+		cmdLine.addParameters("--dep-info", getDepInfoFile(outputFile).getPath());
+
+		return cmdLine;
+	}
 
+	private OSProcessHandler launchBuildProcess(GeneralCommandLine cmdLine) throws ExecutionException {
 		final Process process = cmdLine.createProcess();
 
 		return new OSProcessHandler(process, null, mySystemCharset) {
@@ -467,6 +823,108 @@ public class RustBuildManager implements com.intellij.openapi.components.Applica
 		};
 	}
 
+	/**
+	 * A run configuration builds its main file, anything else builds every crate root of the Rust modules in scope.
+	 * Either way the libraries of the project they link against are built first.
+	 */
+	@NotNull
+	private static RustCrateGraph createCrateGraph(Project project, CompileScope scope) throws ExecutionException {
+		final RunConfiguration runConfig = scope.getUserData(CompileStepBeforeRun.RUN_CONFIGURATION);
+		final RustBuildTarget root = runConfig instanceof RustConfiguration ? RustBuildTarget.forConfiguration(project, (RustConfiguration) runConfig) : null;
+
+		final List<RustBuildTarget> targets = new ArrayList<RustBuildTarget>();
+		final AccessToken token = ReadAction.start();
+		try {
+			if (root != null) {
+				targets.add(root);
+				for (Module module : ModuleManager.getInstance(project).getModules()) {
+					if (ModuleType.get(module) instanceof RustModuleType) {
+						for (RustBuildTarget target : RustBuildTarget.forModule(module)) {
+							if (target.isLibrary()) {
+								targets.add(target);
+							}
+						}
+					}
+				}
+			}
+			else {
+				for (Module module : scope.getAffectedModules()) {
+					if (ModuleType.get(module) instanceof RustModuleType) {
+						targets.addAll(RustBuildTarget.forModule(module));
+					}
+				}
+			}
+		}
+		finally {
+			token.finish();
+		}
+		RustBuildTarget.checkOutputsUnique(targets);
+		return RustCrateGraph.build(targets, root);
+	}
+
+	/**
+	 * @return null if the version of the project's rustc can't be found out, outputs of an unknown compiler mustn't be
+	 * shared through the build cache.
+	 */
+	@Nullable
+	private static String getRustcVersion(Project project) {
+		final Sdk sdk = ProjectRootManager.getInstance(project).getProjectSdk();
+		final RustSdkData sdkData = sdk != null ? RustSdkUtil.testRustSdk(sdk.getHomePath()) : null;
+		return sdkData != null && !StringUtil.isEmptyOrSpaces(sdkData.version) ? sdkData.version : null;
+	}
+
+	/**
+	 * No VFS changes to the inputs recorded by the last build is the cheap check. It is only recorded when every input
+	 * is in the project content (see getWatchedInputs), otherwise the recorded dependencies are checked one by one.
+	 */
+	static boolean isUpToDate(ProjectData projectData, RustUpToDateChecker checker, File outputFile, String commandLine) {
+		return projectData.isUpToDate(outputFile.getPath(), commandLine) || checker.isUpToDate(outputFile, commandLine);
+	}
+
+	/**
+	 * The inputs of a build as VFS paths, or null if one of them isn't in the content of the project. Changes outside
+	 * of it, like a file read by include_str! or a #[path] module next to the project or a library in an output
+	 * directory, never show up as VFS events.
+	 */
+	@Nullable
+	private static Set<String> getWatchedInputs(Project project, @Nullable List<File> inputs) {
+		if (inputs == null) {
+			return null;
+		}
+
+		final AccessToken token = ReadAction.start();
+		try {
+			if (project.isDisposed()) {
+				return null;
+			}
+			final ProjectFileIndex fileIndex = ProjectRootManager.getInstance(project).getFileIndex();
+			final Set<String> paths = new THashSet<String>();
+			for (File input : inputs) {
+				final VirtualFile file = LocalFileSystem.getInstance().findFileByIoFile(input);
+				if (file == null || !fileIndex.isInContent(file)) {
+					return null;
+				}
+				paths.add(file.getPath());
+			}
+			return paths;
+		}
+		finally {
+			token.finish();
+		}
+	}
+
+	private static File getDepInfoFile(File outputFile) {
+		return new File(outputFile.getPath() + ".d");
+	}
+
+	/**
+	 * Tells the handler how the build ended when that isn't already implied by a failure, in particular for builds
+	 * that didn't need to start rustc at all.
+	 */
+	private static void notifyBuildCompleted(BuilderMessageHandler handler, UUID sessionId, CmdlineRemoteProto.Message.BuilderMessage.BuildEvent.Status status) {
+		handler.handleBuildMessage(null, sessionId, CmdlineProtoUtil.createBuildCompletedEvent("build completed", status));
+	}
+
 	@Override
 	public void initComponent() {
 
@@ -511,17 +969,188 @@ public class RustBuildManager implements com.intellij.openapi.components.Applica
 		}
 	}
 
+	/**
+	 * The targets of one build. A target is handed to the scheduler as soon as every library it links against has been
+	 * built, so independent crates build in parallel up to the scheduler's limit. Targets that depend on a library that
+	 * failed to build are skipped. The last target to finish ends the session.
+	 */
+	private class BuildSession {
+		private final Project myProject;
+		private final ProjectData myProjectData;
+		private final RustCrateGraph myGraph;
+		private final boolean myRebuild;
+		private final BuilderMessageHandler myHandler;
+		private final UUID mySessionId;
+		private final RequestFuture myFuture;
+		private final RustBuildMetrics myMetrics;
+
+		// guarded by this
+		private final Map<RustBuildTarget, Integer> myPendingDependencies = new HashMap<RustBuildTarget, Integer>();
+		private final Set<RustBuildTarget> myFinished = new HashSet<RustBuildTarget>();
+		private boolean myCanceled;
+		private boolean myErrors;
+		private boolean myBuilt;
+
+		BuildSession(Project project, ProjectData projectData, RustCrateGraph graph, boolean rebuild, BuilderMessageHandler handler,
+		             UUID sessionId, RequestFuture future, RustBuildMetrics metrics) {
+			myProject = project;
+			myProjectData = projectData;
+			myGraph = graph;
+			myRebuild = rebuild;
+			myHandler = handler;
+			mySessionId = sessionId;
+			myFuture = future;
+			myMetrics = metrics;
+		}
+
+		public void start() {
+			final Set<RustBuildTarget> cyclic = myGraph.getCyclicTargets();
+			if (!cyclic.isEmpty()) {
+				myHandler.handleFailure(mySessionId, CmdlineProtoUtil.createFailure("Cannot build crates with cyclic dependencies: " + StringUtil.join(cyclic, ", "), null));
+			}
+
+			final List<RustBuildTarget> ready = new ArrayList<RustBuildTarget>();
+			final boolean done;
+			synchronized (this) {
+				for (RustBuildTarget target : myGraph.getTargets()) {
+					myPendingDependencies.put(target, myGraph.getDependencies(target).size());
+				}
+				for (RustBuildTarget target : cyclic) {
+					finish(target, RustBuildMetrics.Status.FAILED, ready);
+				}
+				for (RustBuildTarget target : myGraph.getTargets()) {
+					if (myPendingDependencies.get(target) == 0) {
+						ready.add(target);
+					}
+				}
+				done = myFinished.size() == myGraph.getTargets().size();
+			}
+
+			submit(ready);
+			if (done) {
+				finishSession(myHandler, mySessionId, getCompletionStatus());
+			}
+		}
+
+		private void submit(List<RustBuildTarget> targets) {
+			for (final RustBuildTarget target : targets) {
+				final String buildKey = target.getOutputFile().getPath();
+				// the libraries mustn't be rebuilt by another session while this target is linked against them
+				final List<String> libraryKeys = new ArrayList<String>();
+				for (RustBuildTarget library : myGraph.getAllDependencies(target)) {
+					libraryKeys.add(library.getOutputFile().getPath());
+				}
+				myBuildScheduler.submit(buildKey, libraryKeys, new Runnable() {
+					@Override
+					public void run() {
+						final RustBuildMetrics targetMetrics = myMetrics.forOutput(buildKey);
+						boolean started = false;
+						RustBuildMetrics.Status status = RustBuildMetrics.Status.FAILED;
+						try {
+							if (myFuture.isCancelled() || myProject.isDisposed()) {
+								status = RustBuildMetrics.Status.CANCELED;
+								return;
+							}
+							started = true;
+							targetMetrics.started();
+							myBuildsInProgress.put(buildKey, myFuture);
+							status = buildTarget(myProject, myProjectData, target, myGraph.getAllDependencies(target), myRebuild, myHandler, mySessionId, myFuture, targetMetrics);
+						}
+						catch (Throwable e) {
+							myHandler.handleFailure(mySessionId, CmdlineProtoUtil.createFailure(e.getMessage(), e));
+						}
+						finally {
+							myBuildsInProgress.remove(buildKey);
+							if (started) {
+								publishMetrics(myProject, targetMetrics, status);
+							}
+							targetFinished(target, status);
+						}
+					}
+				});
+			}
+		}
+
+		private void targetFinished(RustBuildTarget target, RustBuildMetrics.Status status) {
+			final List<RustBuildTarget> ready = new ArrayList<RustBuildTarget>();
+			final boolean done;
+			synchronized (this) {
+				finish(target, status, ready);
+				done = myFinished.size() == myGraph.getTargets().size();
+			}
+
+			submit(ready);
+			if (done) {
+				finishSession(myHandler, mySessionId, getCompletionStatus());
+			}
+		}
+
+		/**
+		 * Marks target as finished and collects the dependents that can start now. When target wasn't built its
+		 * dependents can't be either, they are finished with the same status.
+		 */
+		private void finish(RustBuildTarget target, RustBuildMetrics.Status status, List<RustBuildTarget> ready) {
+			if (!myFinished.add(target)) {
+				return;
+			}
+
+			switch (status) {
+				case CANCELED:
+					myCanceled = true;
+					break;
+				case ERRORS:
+				case FAILED:
+					myErrors = true;
+					break;
+				case SUCCESS:
+				case CACHED:
+					myBuilt = true;
+					break;
+			}
+
+			final boolean built = status == RustBuildMetrics.Status.SUCCESS || status == RustBuildMetrics.Status.CACHED
+					|| status == RustBuildMetrics.Status.UP_TO_DATE;
+			for (RustBuildTarget dependent : myGraph.getDependents(target)) {
+				if (!built) {
+					LOG.info("Not building " + dependent + ", " + target + " was not built");
+					finish(dependent, status, ready);
+					continue;
+				}
+
+				final int pending = myPendingDependencies.get(dependent) - 1;
+				myPendingDependencies.put(dependent, pending);
+				if (pending == 0 && !myFinished.contains(dependent)) {
+					ready.add(dependent);
+				}
+			}
+		}
 
-	private static class ProjectData {
-		final SequentialTaskExecutor taskQueue;
+		private synchronized CmdlineRemoteProto.Message.BuilderMessage.BuildEvent.Status getCompletionStatus() {
+			if (myCanceled) {
+				return CmdlineRemoteProto.Message.BuilderMessage.BuildEvent.Status.CANCELED;
+			}
+			if (myErrors) {
+				return CmdlineRemoteProto.Message.BuilderMessage.BuildEvent.Status.ERRORS;
+			}
+			return myBuilt ? CmdlineRemoteProto.Message.BuilderMessage.BuildEvent.Status.SUCCESS : CmdlineRemoteProto.Message.BuilderMessage.BuildEvent.Status.UP_TO_DATE;
+		}
+	}
+
+	/**
+	 * VFS changes of one project and what each target has missed of them since it was last built.
+	 */
+	static class ProjectData {
 		private final Set<String> myChanged = new THashSet<String>();
 		private final Set<String> myDeleted = new THashSet<String>();
 		private long myNextEventOrdinal = 0L;
 		private boolean myNeedRescan = true;
-
-		private ProjectData(SequentialTaskExecutor taskQueue) {
-			this.taskQueue = taskQueue;
-		}
+		private long myAppliedEvents = 0L;
+		// output path -> paths changed since it was last built successfully -> number of the event that last changed it
+		private final Map<String, Map<String, Long>> myTargetChanges = new THashMap<String, Map<String, Long>>();
+		// output path -> command line of that build
+		private final Map<String, String> myTargetCommandLines = new THashMap<String, String>();
+		// output path -> inputs of that build, only for builds whose inputs are all in the project content
+		private final Map<String, Set<String>> myTargetInputs = new THashMap<String, Set<String>>();
 
 		public void addChanged(Collection<String> paths) {
 			if (!myNeedRescan) {
@@ -559,6 +1188,102 @@ public class RustBuildManager implements com.intellij.openapi.components.Applica
 			return builder.build();
 		}
 
+		/**
+		 * Records the changes in an event against every target that has been built or is being built, a null event
+		 * (rescan) forgets all of them.
+		 */
+		public synchronized void applyEvent(@Nullable CmdlineRemoteProto.Message.ControllerMessage.FSEvent event) {
+			myAppliedEvents++;
+			if (event == null) {
+				myTargetChanges.clear();
+				myTargetCommandLines.clear();
+				myTargetInputs.clear();
+				return;
+			}
+
+			for (Map<String, Long> changes : myTargetChanges.values()) {
+				for (String path : event.getChangedPathsList()) {
+					changes.put(path, myAppliedEvents);
+				}
+				for (String path : event.getDeletedPathsList()) {
+					changes.put(path, myAppliedEvents);
+				}
+			}
+		}
+
+		/**
+		 * Whether none of the inputs of the last successful build has changed. False if they weren't recorded, which is
+		 * also the case when some of them aren't in the project content.
+		 */
+		public synchronized boolean isUpToDate(String target, String commandLine) {
+			final Map<String, Long> changes = myTargetChanges.get(target);
+			final Set<String> inputs = myTargetInputs.get(target);
+			if (changes == null || inputs == null || !commandLine.equals(myTargetCommandLines.get(target))) {
+				return false;
+			}
+
+			for (String path : changes.keySet()) {
+				if (inputs.contains(path)) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		/**
+		 * Starts recording the changes of a target that is about to be built, another build can apply events while
+		 * this one runs.
+		 *
+		 * @return what to pass to targetBuilt once the target is built
+		 */
+		public synchronized long targetStarted(String target) {
+			if (!myTargetChanges.containsKey(target)) {
+				// no command line is recorded yet, so it isn't up to date until it has been built successfully
+				myTargetChanges.put(target, new THashMap<String, Long>());
+			}
+			return myAppliedEvents;
+		}
+
+		/**
+		 * @param started the value targetStarted returned. On success only the changes that were applied before that
+		 *                are forgotten, the build can't have seen the ones applied while it was running.
+		 * @param inputs  the inputs of the build as VFS paths, null if they aren't known or aren't all in the project
+		 *                content. isUpToDate is false for the target until it is built with known inputs.
+		 */
+		public synchronized void targetBuilt(String target, String commandLine, boolean success, long started, @Nullable Set<String> inputs) {
+			final Map<String, Long> changes = myTargetChanges.get(target);
+			if (success && changes != null) {
+				for (Iterator<Long> it = changes.values().iterator(); it.hasNext(); ) {
+					if (it.next() <= started) {
+						it.remove();
+					}
+				}
+				myTargetCommandLines.put(target, commandLine);
+				if (inputs != null) {
+					myTargetInputs.put(target, inputs);
+				} else {
+					myTargetInputs.remove(target);
+				}
+			} else {
+				// failed, or a rescan forgot everything while it was being built
+				myTargetChanges.remove(target);
+				myTargetCommandLines.remove(target);
+				myTargetInputs.remove(target);
+			}
+		}
+
+		/**
+		 * Hands every change since the previous build to the targets, which is the first thing a build does. Builds
+		 * run concurrently (an auto-make queues its targets behind the ones of a running build), so this can happen
+		 * while targets are being built.
+		 */
+		public synchronized void startBuild(boolean isRebuild) {
+			if (isRebuild) {
+				dropChanges();
+			}
+			applyEvent(getAndResetRescanFlag() ? null : createNextEvent());
+		}
+
 		public boolean getAndResetRescanFlag() {
 			final boolean rescan = myNeedRescan;
 			myNeedRescan = false;
@@ -0,0 +1,141 @@
+package vektah.rust.ide.builder;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.UUID;
+
+/**
+ * Where the time went in building one output. RustBuildManager fills it in as the build moves along and publishes it on
+ * RustBuildMetricsListener.TOPIC once the build is over, after which it doesn't change.
+ *
+ * Durations are in milliseconds and are -1 when the build never got to that stage, ie there is no rustc time for an
+ * up to date build.
+ */
+public class RustBuildMetrics {
+	// CACHED: copied from the build cache instead of running rustc
+	public enum Status { UP_TO_DATE, CACHED, SUCCESS, ERRORS, CANCELED, FAILED }
+
+	private final UUID mySessionId;
+	private final long myScheduled;
+
+	private long myDequeued = -1;
+	private long myStarted = -1;
+	private long mySpawned = -1;
+	private long myProcessFinished = -1;
+	private long myFinished = -1;
+	private long myStderrBytes;
+	private long myParseNanos;
+	private String myOutputPath;
+	private Status myStatus = Status.FAILED;
+
+	RustBuildMetrics(@NotNull UUID sessionId) {
+		this(sessionId, System.nanoTime());
+	}
+
+	private RustBuildMetrics(UUID sessionId, long scheduled) {
+		mySessionId = sessionId;
+		myScheduled = scheduled;
+	}
+
+	@NotNull
+	public UUID getSessionId() {
+		return mySessionId;
+	}
+
+	@Nullable
+	public String getOutputPath() {
+		return myOutputPath;
+	}
+
+	@NotNull
+	public Status getStatus() {
+		return myStatus;
+	}
+
+	/**
+	 * From scheduleBuild until the requests queue got round to it.
+	 */
+	public long getRequestQueueTime() {
+		return millis(myScheduled, myDequeued);
+	}
+
+	/**
+	 * Waiting for a free build slot, or for another build of the same output to finish.
+	 */
+	public long getBuildQueueTime() {
+		return millis(myDequeued, myStarted);
+	}
+
+	/**
+	 * Up to date checks and starting rustc.
+	 */
+	public long getSpawnTime() {
+		return millis(myStarted, mySpawned);
+	}
+
+	public long getRustcTime() {
+		return millis(mySpawned, myProcessFinished);
+	}
+
+	public long getTotalTime() {
+		return millis(myScheduled, myFinished);
+	}
+
+	public long getStderrBytes() {
+		return myStderrBytes;
+	}
+
+	public long getParseTime() {
+		return myParseNanos / 1000000L;
+	}
+
+	void dequeued() {
+		myDequeued = System.nanoTime();
+	}
+
+	void started() {
+		myStarted = System.nanoTime();
+	}
+
+	/**
+	 * A build with several targets gets one set of metrics per output, sharing the time spent in the requests queue.
+	 */
+	RustBuildMetrics forOutput(String outputPath) {
+		final RustBuildMetrics result = new RustBuildMetrics(mySessionId, myScheduled);
+		result.myDequeued = myDequeued;
+		result.myOutputPath = outputPath;
+		return result;
+	}
+
+	void spawned() {
+		mySpawned = System.nanoTime();
+	}
+
+	void processFinished(long stderrBytes, long parseNanos) {
+		myProcessFinished = System.nanoTime();
+		myStderrBytes = stderrBytes;
+		myParseNanos = parseNanos;
+	}
+
+	void finished(Status status) {
+		myFinished = System.nanoTime();
+		myStatus = status;
+	}
+
+	private static long millis(long from, long to) {
+		return from < 0 || to < 0 ? -1 : (to - from) / 1000000L;
+	}
+
+	@Override
+	public String toString() {
+		return "Build " + mySessionId + " of " + myOutputPath + ": " + myStatus +
+				" total=" + getTotalTime() + "ms" +
+				" requestQueue=" + getRequestQueueTime() + "ms" +
+				" buildQueue=" + getBuildQueueTime() + "ms" +
+				" spawn=" + getSpawnTime() + "ms" +
+				" rustc=" + getRustcTime() + "ms" +
+				" parse=" + getParseTime() + "ms" +
+				" stderr=" + myStderrBytes + " bytes";
+	}
+}
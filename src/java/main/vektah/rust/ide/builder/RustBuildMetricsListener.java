@@ -0,0 +1,14 @@
+package vektah.rust.ide.builder;
+
+import com.intellij.openapi.project.Project;
+import com.intellij.util.messages.Topic;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Application level topic, published once per build that RustBuildManager actually started working on.
+ */
+public interface RustBuildMetricsListener {
+	Topic<RustBuildMetricsListener> TOPIC = Topic.create("Rust build metrics", RustBuildMetricsListener.class);
+
+	void buildFinished(@NotNull Project project, @NotNull RustBuildMetrics metrics);
+}
@@ -0,0 +1,128 @@
+package vektah.rust.ide.builder;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+import java.util.concurrent.Executor;
+
+/**
+ * Runs builds on a shared executor, at most a fixed number at a time. Every build writes its key (the output path)
+ * and may read other keys (the libraries it links against). A build doesn't start while another one writes its key or
+ * one of the keys it reads, or while another one reads its key, so a library isn't rewritten under a binary that is
+ * being linked against it. Builds that conflict run in submission order, builds that don't run in parallel.
+ *
+ * The limit defaults to the number of processors and can be changed with -Drust.build.parallelism=n.
+ */
+class RustBuildScheduler {
+	public static final int DEFAULT_PARALLELISM = Integer.getInteger("rust.build.parallelism", Runtime.getRuntime().availableProcessors());
+
+	private final Executor myBackend;
+	private final int myMaxParallel;
+
+	// guarded by this
+	private final List<KeyedTask> myWaiting = new LinkedList<KeyedTask>();
+	private final Set<String> myWriting = new HashSet<String>();
+	// key -> number of running builds reading it
+	private final Map<String, Integer> myReading = new HashMap<String, Integer>();
+	private int myRunning;
+
+	RustBuildScheduler(@NotNull Executor backend, int maxParallel) {
+		myBackend = backend;
+		myMaxParallel = Math.max(1, maxParallel);
+	}
+
+	public void submit(@NotNull String key, @NotNull Runnable task) {
+		submit(key, Collections.<String>emptyList(), task);
+	}
+
+	public void submit(@NotNull String key, @NotNull Collection<String> readKeys, @NotNull Runnable task) {
+		synchronized (this) {
+			myWaiting.add(new KeyedTask(key, readKeys, task));
+		}
+		startReady();
+	}
+
+	private void startReady() {
+		final List<KeyedTask> ready = new ArrayList<KeyedTask>();
+		synchronized (this) {
+			// what the tasks still waiting ahead of the current one will write and read, later tasks can't overtake
+			// them on those keys
+			final Set<String> waitingWrites = new HashSet<String>();
+			final Set<String> waitingReads = new HashSet<String>();
+			for (Iterator<KeyedTask> it = myWaiting.iterator(); it.hasNext() && myRunning < myMaxParallel; ) {
+				final KeyedTask task = it.next();
+				if (canStart(task, waitingWrites, waitingReads)) {
+					it.remove();
+					acquire(task);
+					ready.add(task);
+				} else {
+					waitingWrites.add(task.myKey);
+					waitingReads.addAll(task.myReadKeys);
+				}
+			}
+		}
+		for (KeyedTask task : ready) {
+			myBackend.execute(task);
+		}
+	}
+
+	private boolean canStart(KeyedTask task, Set<String> waitingWrites, Set<String> waitingReads) {
+		if (myWriting.contains(task.myKey) || myReading.containsKey(task.myKey)
+				|| waitingWrites.contains(task.myKey) || waitingReads.contains(task.myKey)) {
+			return false;
+		}
+		for (String key : task.myReadKeys) {
+			if (myWriting.contains(key) || waitingWrites.contains(key)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void acquire(KeyedTask task) {
+		myRunning++;
+		myWriting.add(task.myKey);
+		for (String key : task.myReadKeys) {
+			final Integer readers = myReading.get(key);
+			myReading.put(key, readers == null ? 1 : readers + 1);
+		}
+	}
+
+	private void finished(KeyedTask task) {
+		synchronized (this) {
+			myRunning--;
+			myWriting.remove(task.myKey);
+			for (String key : task.myReadKeys) {
+				final int readers = myReading.get(key);
+				if (readers == 1) {
+					myReading.remove(key);
+				} else {
+					myReading.put(key, readers - 1);
+				}
+			}
+		}
+		startReady();
+	}
+
+	private class KeyedTask implements Runnable {
+		private final String myKey;
+		private final Collection<String> myReadKeys;
+		private final Runnable myTask;
+
+		KeyedTask(String key, Collection<String> readKeys, Runnable task) {
+			myKey = key;
+			myReadKeys = readKeys;
+			myTask = task;
+		}
+
+		@Override
+		public void run() {
+			try {
+				myTask.run();
+			}
+			finally {
+				finished(this);
+			}
+		}
+	}
+}
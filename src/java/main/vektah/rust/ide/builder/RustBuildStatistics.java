@@ -0,0 +1,83 @@
+package vektah.rust.ide.builder;
+
+import com.intellij.openapi.components.ServiceManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.util.EventDispatcher;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+
+/**
+ * Keeps the metrics of the last HISTORY_SIZE builds of a project so that percentiles can be shown even if the tool
+ * window wasn't open while they ran.
+ */
+public class RustBuildStatistics {
+	public static final int HISTORY_SIZE = 200;
+
+	private final Project myProject;
+	private final LinkedList<RustBuildMetrics> myHistory = new LinkedList<RustBuildMetrics>();
+	private final EventDispatcher<ChangeListener> myDispatcher = EventDispatcher.create(ChangeListener.class);
+
+	public interface ChangeListener extends EventListener {
+		void buildAdded(@NotNull RustBuildMetrics metrics);
+	}
+
+	public RustBuildStatistics(Project project) {
+		myProject = project;
+		project.getMessageBus().connect().subscribe(RustBuildMetricsListener.TOPIC, new RustBuildMetricsListener() {
+			@Override
+			public void buildFinished(@NotNull Project project, @NotNull RustBuildMetrics metrics) {
+				if (project == myProject) {
+					add(metrics);
+				}
+			}
+		});
+	}
+
+	public static RustBuildStatistics getInstance(Project project) {
+		return ServiceManager.getService(project, RustBuildStatistics.class);
+	}
+
+	public void addChangeListener(ChangeListener listener) {
+		myDispatcher.addListener(listener);
+	}
+
+	public void removeChangeListener(ChangeListener listener) {
+		myDispatcher.removeListener(listener);
+	}
+
+	@NotNull
+	public synchronized List<RustBuildMetrics> getHistory() {
+		return new ArrayList<RustBuildMetrics>(myHistory);
+	}
+
+	private void add(RustBuildMetrics metrics) {
+		synchronized (this) {
+			myHistory.addLast(metrics);
+			if (myHistory.size() > HISTORY_SIZE) {
+				myHistory.removeFirst();
+			}
+		}
+		myDispatcher.getMulticaster().buildAdded(metrics);
+	}
+
+	/**
+	 * Nearest rank percentile of the values that are known (>= 0), or -1 if there aren't any.
+	 */
+	public static long percentile(@NotNull long[] values, double percentile) {
+		long[] known = new long[values.length];
+		int count = 0;
+		for (long value : values) {
+			if (value >= 0) {
+				known[count++] = value;
+			}
+		}
+		if (count == 0) {
+			return -1;
+		}
+
+		Arrays.sort(known, 0, count);
+		int rank = (int) Math.ceil(percentile / 100.0 * count);
+		return known[Math.max(0, Math.min(count, rank) - 1)];
+	}
+}
@@ -0,0 +1,148 @@
+package vektah.rust.ide.builder;
+
+import com.intellij.execution.ExecutionException;
+import com.intellij.openapi.compiler.CompilerPaths;
+import com.intellij.openapi.module.Module;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.ModuleRootManager;
+import com.intellij.openapi.vfs.VfsUtilCore;
+import com.intellij.openapi.vfs.VirtualFile;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import vektah.rust.ide.runner.RustConfiguration;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One rustc invocation: a crate root and the file it is compiled to.
+ *
+ * A run configuration builds its main file into an executable named after the configuration. Building a module
+ * without one compiles every crate root in its source roots the way rustc projects are usually laid out: lib.rs is a
+ * library and main.rs an executable, both named after the module, and every file in a bin directory is an executable
+ * named after the file.
+ */
+class RustBuildTarget {
+	private static final String LIBRARY_ROOT = "lib.rs";
+	private static final String BINARY_ROOT = "main.rs";
+	private static final String BINARIES_DIRECTORY = "bin";
+
+	private final File myMainFile;
+	private final File myOutputFile;
+	private final boolean myLibrary;
+	@Nullable private final String myCrateName;
+
+	RustBuildTarget(File mainFile, File outputFile, boolean library, @Nullable String crateName) {
+		myMainFile = mainFile;
+		myOutputFile = outputFile;
+		myLibrary = library;
+		myCrateName = crateName;
+	}
+
+	@NotNull
+	public File getMainFile() {
+		return myMainFile;
+	}
+
+	@NotNull
+	public File getOutputFile() {
+		return myOutputFile;
+	}
+
+	public boolean isLibrary() {
+		return myLibrary;
+	}
+
+	/**
+	 * The name passed to --crate-name, null to let rustc pick one.
+	 */
+	@Nullable
+	public String getCrateName() {
+		return myCrateName;
+	}
+
+	@NotNull
+	static RustBuildTarget forConfiguration(@NotNull Project project, @NotNull RustConfiguration configuration) throws ExecutionException {
+		final File mainFile = new File(configuration.mainFile);
+		final File absoluteMainFile = mainFile.isAbsolute() ? mainFile : new File(project.getBasePath(), configuration.mainFile);
+		final File outputFile = new File(getOutputDirectory(configuration.getModules()[0]), configuration.getName());
+		return new RustBuildTarget(absoluteMainFile, outputFile, false, null);
+	}
+
+	/**
+	 * Has to be called in a read action.
+	 */
+	@NotNull
+	static List<RustBuildTarget> forModule(@NotNull Module module) throws ExecutionException {
+		final List<RustBuildTarget> result = new ArrayList<RustBuildTarget>();
+		final String crateName = toCrateName(module.getName());
+
+		for (VirtualFile sourceRoot : ModuleRootManager.getInstance(module).getSourceRoots(false)) {
+			final VirtualFile library = sourceRoot.findChild(LIBRARY_ROOT);
+			if (library != null && !library.isDirectory()) {
+				result.add(new RustBuildTarget(VfsUtilCore.virtualToIoFile(library), new File(getOutputDirectory(module), "lib" + crateName + ".rlib"), true, crateName));
+			}
+
+			final VirtualFile binary = sourceRoot.findChild(BINARY_ROOT);
+			if (binary != null && !binary.isDirectory()) {
+				result.add(new RustBuildTarget(VfsUtilCore.virtualToIoFile(binary), new File(getOutputDirectory(module), crateName), false, crateName));
+			}
+
+			final VirtualFile binaries = sourceRoot.findChild(BINARIES_DIRECTORY);
+			if (binaries != null && binaries.isDirectory()) {
+				for (VirtualFile file : binaries.getChildren()) {
+					if (!file.isDirectory() && "rs".equals(file.getExtension())) {
+						final String name = toCrateName(file.getNameWithoutExtension());
+						result.add(new RustBuildTarget(VfsUtilCore.virtualToIoFile(file), new File(getOutputDirectory(module), name), false, name));
+					}
+				}
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Two crate roots built to the same file would overwrite each other's output, and since they would also share
+	 * up-to-date state either one could be skipped as up to date after the other was built. That happens with main.rs
+	 * or lib.rs in more than one source root, or with a file in bin named after the module next to main.rs.
+	 */
+	static void checkOutputsUnique(@NotNull Collection<RustBuildTarget> targets) throws ExecutionException {
+		final Map<File, RustBuildTarget> byOutput = new HashMap<File, RustBuildTarget>();
+		for (RustBuildTarget target : targets) {
+			final RustBuildTarget other = byOutput.put(target.getOutputFile(), target);
+			if (other != null && !other.getMainFile().equals(target.getMainFile())) {
+				throw new ExecutionException("Both " + other.getMainFile() + " and " + target.getMainFile() + " would be built to " + target.getOutputFile());
+			}
+		}
+	}
+
+	private static String getOutputDirectory(Module module) throws ExecutionException {
+		final String outputPath = CompilerPaths.getModuleOutputPath(module, false);
+		if (outputPath == null) {
+			throw new ExecutionException("No output path is configured for module '" + module.getName() + "'");
+		}
+		return outputPath;
+	}
+
+	/**
+	 * Crate names have to be identifiers.
+	 */
+	private static String toCrateName(String name) {
+		final StringBuilder result = new StringBuilder(name.length());
+		for (int i = 0; i < name.length(); i++) {
+			final char c = name.charAt(i);
+			result.append(Character.isLetterOrDigit(c) || c == '_' ? c : '_');
+		}
+		return result.toString();
+	}
+
+	@Override
+	public String toString() {
+		return myMainFile + " -> " + myOutputFile;
+	}
+}
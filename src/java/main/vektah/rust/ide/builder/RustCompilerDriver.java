@@ -21,7 +21,6 @@ import com.intellij.openapi.util.Key;
 import com.intellij.openapi.util.io.FileUtil;
 import com.intellij.openapi.util.text.StringUtil;
 import com.intellij.openapi.vfs.LocalFileSystem;
-import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.openapi.vfs.VirtualFileManager;
 import com.intellij.openapi.wm.StatusBar;
 import com.intellij.openapi.wm.ToolWindowId;
@@ -44,7 +43,6 @@ import org.jetbrains.jps.api.RequestFuture;
 import javax.swing.*;
 import java.io.File;
 import java.util.*;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.concurrent.TimeUnit;
 
@@ -266,70 +264,11 @@ public class RustCompilerDriver {
 
 			@Override
 			public void handleFailure(UUID sessionId, CmdlineRemoteProto.Message.Failure failure) {
-				if (failure.hasStacktrace()) {
-					compileContext.addMessage(CompilerMessageCategory.ERROR, failure.getDescription(), null, -1, -1);
-				} else {
-					parseErrors(failure.getDescription());
-				}
+				// diagnostics are streamed as compile messages while rustc runs, a failure is whatever is left over
+				compileContext.addMessage(CompilerMessageCategory.ERROR, failure.getDescription(), null, -1, -1);
 				compileContext.putUserData(COMPILE_SERVER_BUILD_STATUS, ExitStatus.ERRORS);
 			}
 
-			private void parseErrors(String description) {
-				Map<String, VirtualFile> files = new HashMap<String, VirtualFile>();
-				String[] lines = description.split("\n");
-				for (String line : lines) {
-					if (Character.isWhitespace(line.charAt(0))) {
-						continue;
-					}
-					int idx = line.indexOf(':');
-					if (idx <= 0) {
-						continue;
-					}
-					String fileName = line.substring(0, idx);
-					VirtualFile file = files.get(fileName);
-					if (file == null) {
-						file = myProject.getBaseDir().findFileByRelativePath(fileName);
-						if (file != null) {
-							files.put(fileName, file);
-						}
-					}
-					if (file == null) {
-						continue;
-					}
-					try {
-						int idx2 = line.indexOf(':', idx + 1);
-						int lineFromRow = Integer.valueOf(line.substring(idx + 1, idx2));
-						idx = idx2;
-						idx2 = line.indexOf(':', idx + 1);
-						int lineFromCol = Integer.valueOf(line.substring(idx + 1, idx2));
-
-						idx = idx2;
-						idx2 = line.indexOf(':', idx + 1);
-						if (!Character.isWhitespace(line.charAt(idx + 1))) {
-							continue;
-						}
-						int lineToRow = Integer.valueOf(line.substring(idx + 2, idx2));
-						idx = idx2;
-						idx2 = line.indexOf(' ', idx + 1);
-						int lineToCol = Integer.valueOf(line.substring(idx + 1, idx2));
-						String message = line.substring(idx2 + 1);
-
-						final CompilerMessageCategory errorType;
-						if (message.startsWith("error: ")) {
-							errorType = CompilerMessageCategory.ERROR;
-							message = message.substring("error: ".length());
-						} else if (message.startsWith("warning: ")) {
-							errorType = CompilerMessageCategory.WARNING;
-							message = message.substring("error: ".length());
-						} else {
-							errorType = CompilerMessageCategory.INFORMATION;
-						}
-						compileContext.addMessage(errorType, message, file.getUrl(), lineFromRow, lineFromCol);
-					} catch (Exception ex) {
-					}
-				}
-			}
-
 			@Override
 			protected void handleCompileMessage(UUID sessionId, CmdlineRemoteProto.Message.BuilderMessage.CompileMessage message) {
 				final CmdlineRemoteProto.Message.BuilderMessage.CompileMessage.Kind kind = message.getKind();
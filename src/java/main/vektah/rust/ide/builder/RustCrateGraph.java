@@ -0,0 +1,314 @@
+package vektah.rust.ide.builder;
+
+import com.intellij.lexer.Lexer;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.psi.tree.IElementType;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import vektah.rust.RustFlexAdapter;
+import vektah.rust.RustParserDefinition;
+import vektah.rust.psi.RustTokens;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Which targets of a build link against which library targets, found by looking for extern crate declarations in the
+ * crate root and every file it pulls in with mod declarations.
+ *
+ * This runs before every build over every crate in it, so the files are only run through the lexer: no PSI, no
+ * parsing, not even the VFS. That is enough for the declarations rustc itself resolves without macro expansion, a
+ * crate that is only named from a macro or a #[path] module won't be found.
+ */
+class RustCrateGraph {
+	private static final Logger LOG = Logger.getInstance(RustCrateGraph.class);
+
+	private final List<RustBuildTarget> myTargets;
+	private final Map<RustBuildTarget, List<RustBuildTarget>> myDependencies;
+	private final Map<RustBuildTarget, List<RustBuildTarget>> myDependents = new HashMap<RustBuildTarget, List<RustBuildTarget>>();
+	private final Set<RustBuildTarget> myCyclicTargets = new LinkedHashSet<RustBuildTarget>();
+
+	private RustCrateGraph(List<RustBuildTarget> targets, Map<RustBuildTarget, List<RustBuildTarget>> dependencies) {
+		myTargets = targets;
+		myDependencies = dependencies;
+		for (RustBuildTarget target : targets) {
+			myDependents.put(target, new ArrayList<RustBuildTarget>());
+		}
+		for (RustBuildTarget target : targets) {
+			for (RustBuildTarget dependency : dependencies.get(target)) {
+				myDependents.get(dependency).add(target);
+			}
+		}
+		findCycles();
+	}
+
+	/**
+	 * @param root if not null, only root and the libraries it needs are kept, the other targets are only candidates
+	 *             for what its extern crates refer to.
+	 */
+	@NotNull
+	static RustCrateGraph build(@NotNull List<RustBuildTarget> targets, @Nullable RustBuildTarget root) {
+		final Map<String, RustBuildTarget> libraries = new HashMap<String, RustBuildTarget>();
+		for (RustBuildTarget target : targets) {
+			if (target.isLibrary() && target.getCrateName() != null) {
+				libraries.put(normalizeCrateName(target.getCrateName()), target);
+			}
+		}
+
+		final Map<RustBuildTarget, List<RustBuildTarget>> dependencies = new LinkedHashMap<RustBuildTarget, List<RustBuildTarget>>();
+		final Deque<RustBuildTarget> queue = new ArrayDeque<RustBuildTarget>(root != null ? Collections.singletonList(root) : targets);
+		while (!queue.isEmpty()) {
+			final RustBuildTarget target = queue.poll();
+			if (dependencies.containsKey(target)) {
+				continue;
+			}
+
+			final List<RustBuildTarget> targetDependencies = new ArrayList<RustBuildTarget>();
+			for (String crate : findExternCrates(target.getMainFile())) {
+				final RustBuildTarget library = libraries.get(normalizeCrateName(crate));
+				// anything else is expected to be in the SDK or passed in some other way
+				if (library != null && library != target && !targetDependencies.contains(library)) {
+					targetDependencies.add(library);
+					queue.add(library);
+				}
+			}
+			dependencies.put(target, targetDependencies);
+		}
+
+		return new RustCrateGraph(new ArrayList<RustBuildTarget>(dependencies.keySet()), dependencies);
+	}
+
+	@NotNull
+	public List<RustBuildTarget> getTargets() {
+		return myTargets;
+	}
+
+	/**
+	 * The library targets target links against directly.
+	 */
+	@NotNull
+	public List<RustBuildTarget> getDependencies(@NotNull RustBuildTarget target) {
+		return myDependencies.get(target);
+	}
+
+	@NotNull
+	public List<RustBuildTarget> getDependents(@NotNull RustBuildTarget target) {
+		return myDependents.get(target);
+	}
+
+	/**
+	 * Every library target needs, including the ones its libraries link against.
+	 */
+	@NotNull
+	public Set<RustBuildTarget> getAllDependencies(@NotNull RustBuildTarget target) {
+		final Set<RustBuildTarget> result = new LinkedHashSet<RustBuildTarget>();
+		final Deque<RustBuildTarget> queue = new ArrayDeque<RustBuildTarget>(getDependencies(target));
+		while (!queue.isEmpty()) {
+			final RustBuildTarget dependency = queue.poll();
+			if (result.add(dependency)) {
+				queue.addAll(getDependencies(dependency));
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Targets that are part of a dependency cycle, or depend on one. They can't be built.
+	 */
+	@NotNull
+	public Set<RustBuildTarget> getCyclicTargets() {
+		return myCyclicTargets;
+	}
+
+	/**
+	 * Kahn's algorithm, whatever can't be ordered is in a cycle or depends on one.
+	 */
+	private void findCycles() {
+		final Map<RustBuildTarget, Integer> pending = new HashMap<RustBuildTarget, Integer>();
+		final Deque<RustBuildTarget> ready = new ArrayDeque<RustBuildTarget>();
+		for (RustBuildTarget target : myTargets) {
+			final int count = getDependencies(target).size();
+			pending.put(target, count);
+			if (count == 0) {
+				ready.add(target);
+			}
+		}
+
+		final Set<RustBuildTarget> ordered = new HashSet<RustBuildTarget>();
+		while (!ready.isEmpty()) {
+			final RustBuildTarget target = ready.poll();
+			ordered.add(target);
+			for (RustBuildTarget dependent : getDependents(target)) {
+				final int count = pending.get(dependent) - 1;
+				pending.put(dependent, count);
+				if (count == 0) {
+					ready.add(dependent);
+				}
+			}
+		}
+
+		for (RustBuildTarget target : myTargets) {
+			if (!ordered.contains(target)) {
+				myCyclicTargets.add(target);
+			}
+		}
+	}
+
+	/**
+	 * The crates named in extern crate declarations of the crate rooted at mainFile.
+	 */
+	@NotNull
+	static Set<String> findExternCrates(@NotNull File mainFile) {
+		final Set<String> crates = new LinkedHashSet<String>();
+		final Set<File> visited = new HashSet<File>();
+		final Deque<File> queue = new ArrayDeque<File>();
+		queue.add(mainFile);
+
+		while (!queue.isEmpty()) {
+			final File file = queue.poll();
+			if (!visited.add(file)) {
+				continue;
+			}
+
+			final String text;
+			try {
+				text = FileUtil.loadFile(file, "UTF-8");
+			}
+			catch (IOException e) {
+				// rustc will have something to say about it
+				LOG.info("Cannot read " + file, e);
+				continue;
+			}
+
+			final List<String> modules = new ArrayList<String>();
+			scan(text, crates, modules);
+			for (String module : modules) {
+				final File moduleFile = findModuleFile(file.getParentFile(), module);
+				if (moduleFile != null) {
+					queue.add(moduleFile);
+				}
+			}
+		}
+
+		return crates;
+	}
+
+	/**
+	 * Collects the crates of extern crate declarations and the modules of mod declarations without a body. The
+	 * modules are paths relative to the directory of the file, so a mod b; inside a mod a { } is "a/b".
+	 */
+	static void scan(@NotNull CharSequence text, @NotNull Collection<String> crates, @NotNull Collection<String> modules) {
+		final Lexer lexer = new RustFlexAdapter(false);
+		lexer.start(text);
+
+		// inline modules we are in and the brace depth inside each of them
+		final List<String> path = new ArrayList<String>();
+		final List<Integer> pathDepths = new ArrayList<Integer>();
+		int depth = 0;
+
+		IElementType type = nextToken(lexer, false);
+		while (type != null) {
+			if (type == RustTokens.KW_EXTERN) {
+				type = nextToken(lexer, true);
+				if (type != RustTokens.KW_CRATE) {
+					continue;
+				}
+				type = nextToken(lexer, true);
+				if (type != RustTokens.IDENTIFIER) {
+					continue;
+				}
+				String crate = lexer.getTokenText();
+				type = nextToken(lexer, true);
+				if (type == RustTokens.ASSIGN) {
+					type = nextToken(lexer, true);
+					if (type == RustTokens.STRING_LIT) {
+						crate = crateNameFromId(lexer.getTokenText());
+						type = nextToken(lexer, true);
+					}
+				}
+				crates.add(crate);
+				continue;
+			}
+
+			if (type == RustTokens.KW_MOD) {
+				type = nextToken(lexer, true);
+				if (type != RustTokens.IDENTIFIER) {
+					continue;
+				}
+				final String module = lexer.getTokenText();
+				type = nextToken(lexer, true);
+				if (type == RustTokens.SEMICOLON) {
+					modules.add(StringUtil.join(path, "/") + (path.isEmpty() ? "" : "/") + module);
+				} else if (type == RustTokens.OPEN_BRACE) {
+					path.add(module);
+					pathDepths.add(depth);
+					depth++;
+					type = nextToken(lexer, true);
+				}
+				continue;
+			}
+
+			if (type == RustTokens.OPEN_BRACE) {
+				depth++;
+			} else if (type == RustTokens.CLOSE_BRACE) {
+				depth--;
+				if (!pathDepths.isEmpty() && pathDepths.get(pathDepths.size() - 1) == depth) {
+					path.remove(path.size() - 1);
+					pathDepths.remove(pathDepths.size() - 1);
+				}
+			}
+			type = nextToken(lexer, true);
+		}
+	}
+
+	@Nullable
+	private static IElementType nextToken(Lexer lexer, boolean advance) {
+		if (advance) {
+			lexer.advance();
+		}
+		while (true) {
+			final IElementType type = lexer.getTokenType();
+			if (type == null || !(RustParserDefinition.WHITE_SPACES.contains(type) || isComment(type))) {
+				return type;
+			}
+			lexer.advance();
+		}
+	}
+
+	private static boolean isComment(IElementType type) {
+		return RustParserDefinition.COMMENTS.contains(type) || type == RustTokens.BLOCK_DOC_COMMENT || type == RustTokens.LINE_DOC_COMMENT;
+	}
+
+	/**
+	 * foo/bar.rs or foo/bar/mod.rs for module "foo/bar".
+	 */
+	@Nullable
+	private static File findModuleFile(File directory, String module) {
+		final File file = new File(directory, module + ".rs");
+		if (file.isFile()) {
+			return file;
+		}
+		final File modFile = new File(new File(directory, module), "mod.rs");
+		return modFile.isFile() ? modFile : null;
+	}
+
+	/**
+	 * The crate name in an old style crate id, ie "bar" for "github.com/foo/bar#0.1".
+	 */
+	@NotNull
+	static String crateNameFromId(@NotNull String literal) {
+		String id = StringUtil.unquoteString(literal);
+		final int hash = id.indexOf('#');
+		if (hash >= 0) {
+			id = id.substring(0, hash);
+		}
+		return id.substring(id.lastIndexOf('/') + 1);
+	}
+
+	private static String normalizeCrateName(String name) {
+		return name.replace('-', '_');
+	}
+}
@@ -0,0 +1,179 @@
+package vektah.rust.ide.builder;
+
+import com.intellij.compiler.server.BuilderMessageHandler;
+import com.intellij.execution.process.ProcessAdapter;
+import com.intellij.execution.process.ProcessEvent;
+import com.intellij.execution.process.ProcessOutputTypes;
+import com.intellij.openapi.util.Key;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.vfs.VirtualFile;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.jps.api.CmdlineProtoUtil;
+import org.jetbrains.jps.api.CmdlineRemoteProto.Message.BuilderMessage.CompileMessage.Kind;
+
+import java.io.File;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.util.UUID;
+
+/**
+ * Turns rustc's stderr into compile messages as it is printed, so the Messages view fills up while the build is still
+ * running. Lines that aren't diagnostics are kept in case the build fails without telling us why.
+ *
+ * Complete lines are parsed straight out of the text the process handler gives us, only a line split across two
+ * chunks gets copied.
+ */
+class RustDiagnosticListener extends ProcessAdapter {
+	private static final String COMPILER_NAME = "rustc";
+
+	private final BuilderMessageHandler myHandler;
+	private final UUID mySessionId;
+	private final String myWorkDirectory;
+	private final RustSourceFileCache myFileCache;
+	private final Charset myCharset;
+	private final RustDiagnosticParser myParser = new RustDiagnosticParser();
+
+	private final StringBuilder myPartialLine = new StringBuilder();
+	private final StringBuilder myUnparsedOutput = new StringBuilder();
+	private int myErrorCount;
+	private long myStderrBytes;
+	private long myParseNanos;
+
+	// consecutive diagnostics are usually in the same file
+	private String myLastPath;
+	private String myLastResolvedPath;
+
+	RustDiagnosticListener(@NotNull BuilderMessageHandler handler, @NotNull UUID sessionId, @NotNull File workDirectory, @NotNull RustSourceFileCache fileCache,
+	                       @NotNull Charset charset) {
+		myHandler = handler;
+		mySessionId = sessionId;
+		myWorkDirectory = FileUtil.toSystemIndependentName(workDirectory.getPath());
+		myFileCache = fileCache;
+		myCharset = charset;
+	}
+
+	@Override
+	public void onTextAvailable(ProcessEvent event, Key outputType) {
+		if (!ProcessOutputTypes.STDERR.equals(outputType)) {
+			return;
+		}
+
+		final long parseStarted = System.nanoTime();
+		final String text = event.getText();
+		myStderrBytes += countBytes(text, myCharset);
+		int start = 0;
+		for (int i = 0; i < text.length(); i++) {
+			if (text.charAt(i) != '\n') {
+				continue;
+			}
+
+			if (myPartialLine.length() > 0) {
+				myPartialLine.append(text, start, i);
+				processLine(myPartialLine, 0, myPartialLine.length());
+				myPartialLine.setLength(0);
+			} else {
+				processLine(text, start, i);
+			}
+			start = i + 1;
+		}
+		myPartialLine.append(text, start, text.length());
+		myParseNanos += System.nanoTime() - parseStarted;
+	}
+
+	@Override
+	public void processTerminated(ProcessEvent event) {
+		if (myPartialLine.length() > 0) {
+			processLine(myPartialLine, 0, myPartialLine.length());
+			myPartialLine.setLength(0);
+		}
+	}
+
+	public int getErrorCount() {
+		return myErrorCount;
+	}
+
+	/**
+	 * What rustc wrote to stderr, in bytes of the charset the process handler decoded it with.
+	 */
+	public long getStderrBytes() {
+		return myStderrBytes;
+	}
+
+	/**
+	 * rustc's output is almost always ASCII, which takes one byte per char in every charset it could be decoded
+	 * with, so only text with other chars in it is encoded again.
+	 */
+	static long countBytes(@NotNull String text, @NotNull Charset charset) {
+		for (int i = 0; i < text.length(); i++) {
+			if (text.charAt(i) >= 0x80) {
+				return charset.encode(CharBuffer.wrap(text)).remaining();
+			}
+		}
+		return text.length();
+	}
+
+	/**
+	 * Time spent splitting and parsing stderr, including handing the messages over.
+	 */
+	public long getParseNanos() {
+		return myParseNanos;
+	}
+
+	/**
+	 * Output that wasn't reported as a diagnostic.
+	 */
+	public String getUnparsedOutput() {
+		return myUnparsedOutput.toString();
+	}
+
+	void processLine(CharSequence text, int start, int end) {
+		if (end > start && text.charAt(end - 1) == '\r') {
+			end--;
+		}
+
+		if (!myParser.parse(text, start, end)) {
+			if (!isBlank(text, start, end)) {
+				myUnparsedOutput.append(text, start, end).append('\n');
+			}
+			return;
+		}
+
+		if (myParser.getKind() == Kind.ERROR) {
+			myErrorCount++;
+		}
+
+		myHandler.handleBuildMessage(null, mySessionId, CmdlineProtoUtil.createCompileMessage(
+				COMPILER_NAME, myParser.getKind(), myParser.getMessage(text), resolvePath(text),
+				-1L, -1L, -1L, myParser.getLine(), myParser.getColumn(), -1.0f
+		));
+	}
+
+	@Nullable
+	private String resolvePath(CharSequence text) {
+		if (!myParser.hasPath()) {
+			return null;
+		}
+		if (myParser.pathEquals(text, myLastPath)) {
+			return myLastResolvedPath;
+		}
+
+		final String rawPath = myParser.getPath(text);
+		final String path = FileUtil.toSystemIndependentName(rawPath);
+		final String absolute = FileUtil.isAbsolute(path) ? path : myWorkDirectory + "/" + path;
+		final VirtualFile file = myFileCache.findFile(absolute);
+
+		myLastPath = rawPath;
+		myLastResolvedPath = file != null ? file.getPath() : absolute;
+		return myLastResolvedPath;
+	}
+
+	private static boolean isBlank(CharSequence text, int start, int end) {
+		for (int i = start; i < end; i++) {
+			if (!Character.isWhitespace(text.charAt(i))) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
@@ -0,0 +1,188 @@
+package vektah.rust.ide.builder;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.jps.api.CmdlineRemoteProto.Message.BuilderMessage.CompileMessage.Kind;
+
+/**
+ * Parses lines of rustc output. Diagnostics look like
+ *
+ *   src/main.rs:3:5: 3:10 error: unresolved name `y`.
+ *
+ * and messages that aren't about a particular place, like "error: aborting due to previous error", have no location.
+ * Everything else rustc prints (source snippets, ^~~~ markers) isn't a diagnostic.
+ *
+ * The line is scanned in place: parse() only records offsets and numbers in this object, so a parser can be reused
+ * for every line of a build and nothing is allocated until a diagnostic is actually reported.
+ */
+public class RustDiagnosticParser {
+	private static final String ERROR = "error: ";
+	private static final String WARNING = "warning: ";
+	private static final String NOTE = "note: ";
+
+	// Results of the last successful parse
+	private Kind myKind;
+	private int myPathStart;
+	private int myPathEnd;
+	private int myLine;
+	private int myColumn;
+	private int myMessageStart;
+	private int myMessageEnd;
+
+	/**
+	 * @return whether text[start, end) is a diagnostic. If it is, the getters describe it until the next call.
+	 */
+	public boolean parse(@NotNull CharSequence text, int start, int end) {
+		if (start >= end || Character.isWhitespace(text.charAt(start))) {
+			return false;
+		}
+
+		if (parseKind(text, start, end)) {
+			myPathStart = myPathEnd = -1;
+			myLine = myColumn = -1;
+			return true;
+		}
+
+		// file:line:col: line:col kind: message
+		final int pathEnd = indexOf(text, ':', start, end);
+		if (pathEnd <= start) {
+			return false;
+		}
+
+		int pos = pathEnd + 1;
+		final int line = parseNumber(text, pos, end);
+		pos = skipDigits(text, pos, end);
+		if (line < 0 || pos >= end || text.charAt(pos) != ':') {
+			return false;
+		}
+
+		pos++;
+		final int column = parseNumber(text, pos, end);
+		pos = skipDigits(text, pos, end);
+		if (column < 0 || pos + 1 >= end || text.charAt(pos) != ':' || !Character.isWhitespace(text.charAt(pos + 1))) {
+			return false;
+		}
+
+		// skip the end position, the messages view has no use for it
+		pos = indexOf(text, ' ', pos + 2, end);
+		if (pos < 0 || !parseKind(text, pos + 1, end)) {
+			return false;
+		}
+
+		myPathStart = start;
+		myPathEnd = pathEnd;
+		myLine = line;
+		myColumn = column;
+		return true;
+	}
+
+	@NotNull
+	public Kind getKind() {
+		return myKind;
+	}
+
+	public boolean hasPath() {
+		return myPathStart >= 0;
+	}
+
+	public int getLine() {
+		return myLine;
+	}
+
+	public int getColumn() {
+		return myColumn;
+	}
+
+	@Nullable
+	public String getPath(@NotNull CharSequence text) {
+		return hasPath() ? text.subSequence(myPathStart, myPathEnd).toString() : null;
+	}
+
+	/**
+	 * Compares the path of the last diagnostic against path without creating a string for it.
+	 */
+	public boolean pathEquals(@NotNull CharSequence text, @Nullable String path) {
+		if (!hasPath() || path == null || path.length() != myPathEnd - myPathStart) {
+			return false;
+		}
+		for (int i = 0; i < path.length(); i++) {
+			if (text.charAt(myPathStart + i) != path.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@NotNull
+	public String getMessage(@NotNull CharSequence text) {
+		return text.subSequence(myMessageStart, myMessageEnd).toString();
+	}
+
+	private boolean parseKind(CharSequence text, int start, int end) {
+		final Kind kind;
+		final int length;
+		if (startsWith(text, start, end, ERROR)) {
+			kind = Kind.ERROR;
+			length = ERROR.length();
+		} else if (startsWith(text, start, end, WARNING)) {
+			kind = Kind.WARNING;
+			length = WARNING.length();
+		} else if (startsWith(text, start, end, NOTE)) {
+			kind = Kind.INFO;
+			length = NOTE.length();
+		} else {
+			return false;
+		}
+
+		myKind = kind;
+		myMessageStart = start + length;
+		myMessageEnd = end;
+		return true;
+	}
+
+	private static boolean startsWith(CharSequence text, int start, int end, String prefix) {
+		if (end - start < prefix.length()) {
+			return false;
+		}
+		for (int i = 0; i < prefix.length(); i++) {
+			if (text.charAt(start + i) != prefix.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static int indexOf(CharSequence text, char c, int start, int end) {
+		for (int i = start; i < end; i++) {
+			if (text.charAt(i) == c) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * @return the number starting at start, or -1 if there isn't one.
+	 */
+	private static int parseNumber(CharSequence text, int start, int end) {
+		int result = 0;
+		int i = start;
+		while (i < end && i - start < 9) {
+			final char c = text.charAt(i);
+			if (c < '0' || c > '9') {
+				break;
+			}
+			result = result * 10 + (c - '0');
+			i++;
+		}
+		return i == start ? -1 : result;
+	}
+
+	private static int skipDigits(CharSequence text, int start, int end) {
+		int i = start;
+		while (i < end && text.charAt(i) >= '0' && text.charAt(i) <= '9') {
+			i++;
+		}
+		return i;
+	}
+}
@@ -0,0 +1,31 @@
+package vektah.rust.ide.builder;
+
+import com.intellij.openapi.vfs.LocalFileSystem;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.util.containers.SLRUMap;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Absolute path to VirtualFile for the files rustc reports diagnostics in. Shared by all builds, the same handful of
+ * files tend to show up in build after build.
+ */
+class RustSourceFileCache {
+	private final SLRUMap<String, VirtualFile> myFiles = new SLRUMap<String, VirtualFile>(256, 256);
+
+	@Nullable
+	public synchronized VirtualFile findFile(@NotNull String path) {
+		VirtualFile file = myFiles.get(path);
+		if (file != null && file.isValid()) {
+			return file;
+		}
+
+		file = LocalFileSystem.getInstance().findFileByPath(path);
+		if (file != null) {
+			myFiles.put(path, file);
+		} else {
+			myFiles.remove(path);
+		}
+		return file;
+	}
+}
@@ -0,0 +1,290 @@
+package vektah.rust.ide.builder;
+
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.util.containers.SLRUMap;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Remembers which files went into each binary, using the dep-info file rustc writes next to it, along with their
+ * size, timestamp and content hash. A build is up to date when the command line is the same and every one of those
+ * files still has the same content. Timestamps only decide whether a file needs to be hashed again, so touching a
+ * file or switching branches back and forth doesn't force a rebuild.
+ *
+ * The state is written to disk so it survives a restart, but it is also kept in memory for the most recently built
+ * binaries. Checking one of those needs nothing but a stat of each dependency, and a dependency that turned out to
+ * be only touched gets its new timestamp remembered so it isn't hashed again on the next build.
+ */
+class RustUpToDateChecker {
+	private static final Logger LOG = Logger.getInstance(RustUpToDateChecker.class);
+
+	private static final int VERSION = 1;
+
+	private final File myStateDirectory;
+	// state file path -> record, guarded by itself
+	private final SLRUMap<String, BuildRecord> myRecords = new SLRUMap<String, BuildRecord>(128, 128);
+
+	RustUpToDateChecker(File systemDirectory) {
+		myStateDirectory = new File(systemDirectory, "rust-build");
+	}
+
+	public boolean isUpToDate(@NotNull File output, @NotNull String commandLine) {
+		final File stateFile = getStateFile(output);
+		if (!output.exists()) {
+			return false;
+		}
+
+		try {
+			final BuildRecord record = getRecord(stateFile);
+			if (record == null || !commandLine.equals(record.commandLine)) {
+				return false;
+			}
+
+			for (int i = 0; i < record.paths.length; i++) {
+				final File source = new File(record.paths[i]);
+				final long length = source.length();
+				if (!source.isFile() || length != record.lengths[i]) {
+					return false;
+				}
+
+				final long lastModified = source.lastModified();
+				if (lastModified != record.lastModified[i]) {
+					if (!record.hashes[i].equals(hash(source))) {
+						return false;
+					}
+					// only touched, the hash is still good for the new timestamp
+					record.lastModified[i] = lastModified;
+				}
+			}
+			return true;
+		}
+		catch (IOException e) {
+			LOG.info("Cannot read build state for " + output, e);
+			return false;
+		}
+	}
+
+	/**
+	 * Called after a successful build, with the files that went into it. Nothing is recorded if one of them was
+	 * modified while the build was running, because we can't know which version rustc saw.
+	 *
+	 * @return whether the build was recorded
+	 */
+	public boolean recordBuild(@NotNull File output, @NotNull String commandLine, @NotNull List<File> inputs, long buildStarted) {
+		final File stateFile = getStateFile(output);
+
+		try {
+			final BuildRecord record = new BuildRecord(commandLine, inputs.size());
+			for (int i = 0; i < inputs.size(); i++) {
+				final File source = inputs.get(i);
+				if (source.lastModified() >= buildStarted) {
+					throw new IOException(source + " was modified during the build");
+				}
+				record.paths[i] = source.getAbsolutePath();
+				record.lengths[i] = source.length();
+				record.lastModified[i] = source.lastModified();
+				record.hashes[i] = hash(source);
+			}
+
+			writeRecord(stateFile, record);
+			synchronized (myRecords) {
+				myRecords.put(stateFile.getPath(), record);
+			}
+			return true;
+		}
+		catch (IOException e) {
+			LOG.info("Cannot record build state for " + output, e);
+			forget(output);
+			return false;
+		}
+	}
+
+	/**
+	 * The files that went into a build: the sources in the dep-info file rustc wrote for it, with relative paths
+	 * resolved against the directory rustc ran in, and the libraries it was linked against, which rustc doesn't list.
+	 */
+	@NotNull
+	static List<File> readInputs(@NotNull File depInfo, @NotNull Collection<File> libraries, @NotNull File workDirectory) throws IOException {
+		final List<File> result = new ArrayList<File>();
+		for (String path : parseDepInfo(FileUtil.loadFile(depInfo))) {
+			result.add(FileUtil.isAbsolute(path) ? new File(path) : new File(workDirectory, path));
+		}
+		result.addAll(libraries);
+		return result;
+	}
+
+	/**
+	 * The files that went into the last recorded build of output, null if there isn't one.
+	 */
+	@Nullable
+	public List<File> getInputs(@NotNull File output) {
+		try {
+			final BuildRecord record = getRecord(getStateFile(output));
+			if (record == null) {
+				return null;
+			}
+			final List<File> inputs = new ArrayList<File>(record.paths.length);
+			for (String path : record.paths) {
+				inputs.add(new File(path));
+			}
+			return inputs;
+		}
+		catch (IOException e) {
+			LOG.info("Cannot read build state for " + output, e);
+			return null;
+		}
+	}
+
+	public void forget(@NotNull File output) {
+		final File stateFile = getStateFile(output);
+		synchronized (myRecords) {
+			myRecords.remove(stateFile.getPath());
+		}
+		FileUtil.delete(stateFile);
+	}
+
+	private File getStateFile(File output) {
+		final String path = FileUtil.toSystemIndependentName(output.getAbsolutePath());
+		return new File(myStateDirectory, output.getName() + "_" + Integer.toHexString(path.hashCode()) + ".deps");
+	}
+
+	@Nullable
+	private BuildRecord getRecord(File stateFile) throws IOException {
+		synchronized (myRecords) {
+			final BuildRecord record = myRecords.get(stateFile.getPath());
+			if (record != null) {
+				return record;
+			}
+		}
+
+		if (!stateFile.exists()) {
+			return null;
+		}
+		final BuildRecord record = readRecord(stateFile);
+		if (record != null) {
+			synchronized (myRecords) {
+				myRecords.put(stateFile.getPath(), record);
+			}
+		}
+		return record;
+	}
+
+	@Nullable
+	private static BuildRecord readRecord(File stateFile) throws IOException {
+		final DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(stateFile)));
+		try {
+			if (in.readInt() != VERSION) {
+				return null;
+			}
+
+			final String commandLine = in.readUTF();
+			final BuildRecord record = new BuildRecord(commandLine, in.readInt());
+			for (int i = 0; i < record.paths.length; i++) {
+				record.paths[i] = in.readUTF();
+				record.lengths[i] = in.readLong();
+				record.lastModified[i] = in.readLong();
+				record.hashes[i] = in.readUTF();
+			}
+			return record;
+		}
+		finally {
+			in.close();
+		}
+	}
+
+	private static void writeRecord(File stateFile, BuildRecord record) throws IOException {
+		FileUtil.createParentDirs(stateFile);
+
+		final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(stateFile)));
+		try {
+			out.writeInt(VERSION);
+			out.writeUTF(record.commandLine);
+			out.writeInt(record.paths.length);
+			for (int i = 0; i < record.paths.length; i++) {
+				out.writeUTF(record.paths[i]);
+				out.writeLong(record.lengths[i]);
+				out.writeLong(record.lastModified[i]);
+				out.writeUTF(record.hashes[i]);
+			}
+		}
+		finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Returns the dependencies of the first rule in a makefile style dep-info file, ie the part after "output: ".
+	 */
+	@NotNull
+	static List<String> parseDepInfo(@NotNull String text) {
+		final List<String> result = new ArrayList<String>();
+
+		final String rule = StringUtil.convertLineSeparators(text).replace("\\\n", " ");
+		final int lineEnd = rule.indexOf('\n');
+		final String line = lineEnd < 0 ? rule : rule.substring(0, lineEnd);
+
+		// ": " rather than ':' so windows drive letters in the target don't confuse it
+		final int colon = line.indexOf(": ");
+		if (colon < 0) {
+			return result;
+		}
+
+		final StringBuilder current = new StringBuilder();
+		for (int i = colon + 2; i < line.length(); i++) {
+			final char c = line.charAt(i);
+			if (c == '\\' && i + 1 < line.length() && line.charAt(i + 1) == ' ') {
+				current.append(' ');
+				i++;
+			} else if (c == ' ' || c == '\t') {
+				if (current.length() > 0) {
+					result.add(current.toString());
+					current.setLength(0);
+				}
+			} else {
+				current.append(c);
+			}
+		}
+		if (current.length() > 0) {
+			result.add(current.toString());
+		}
+
+		return result;
+	}
+
+	@NotNull
+	static String hash(File file) throws IOException {
+		try {
+			final MessageDigest digest = MessageDigest.getInstance("MD5");
+			return StringUtil.toHexString(digest.digest(FileUtil.loadFileBytes(file)));
+		}
+		catch (NoSuchAlgorithmException e) {
+			throw new IOException(e);
+		}
+	}
+
+	private static class BuildRecord {
+		final String commandLine;
+		final String[] paths;
+		final long[] lengths;
+		// updated in place when a dependency is found to be touched but unchanged
+		final long[] lastModified;
+		final String[] hashes;
+
+		BuildRecord(String commandLine, int count) {
+			this.commandLine = commandLine;
+			paths = new String[count];
+			lengths = new long[count];
+			lastModified = new long[count];
+			hashes = new String[count];
+		}
+	}
+}
@@ -0,0 +1,37 @@
+package vektah.rust.ide.navigation;
+
+import com.intellij.navigation.ChooseByNameContributor;
+import com.intellij.navigation.NavigationItem;
+import com.intellij.openapi.project.Project;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.stubs.StubIndex;
+import com.intellij.util.ArrayUtil;
+import org.jetbrains.annotations.NotNull;
+import vektah.rust.psi.RustItem;
+import vektah.rust.psi.stubs.RustItemIndex;
+
+import java.util.Collection;
+
+/**
+ * Go to Symbol for fns, structs, enums, traits, impls, statics, mods and types. Everything is answered from
+ * RustItemIndex so no file has to be parsed until the user actually picks a result.
+ */
+public class RustSymbolContributor implements ChooseByNameContributor {
+	@NotNull
+	@Override
+	public String[] getNames(Project project, boolean includeNonProjectItems) {
+		return ArrayUtil.toStringArray(StubIndex.getInstance().getAllKeys(RustItemIndex.KEY, project));
+	}
+
+	@NotNull
+	@Override
+	public NavigationItem[] getItemsByName(String name, String pattern, Project project, boolean includeNonProjectItems) {
+		GlobalSearchScope scope = includeNonProjectItems
+				? GlobalSearchScope.allScope(project)
+				: GlobalSearchScope.projectScope(project);
+
+		Collection<RustItem> items = StubIndex.getInstance().get(RustItemIndex.KEY, name, project, scope);
+
+		return items.toArray(new NavigationItem[items.size()]);
+	}
+}
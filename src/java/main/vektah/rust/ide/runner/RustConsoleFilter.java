@@ -5,17 +5,34 @@ import com.intellij.execution.filters.HyperlinkInfo;
 import com.intellij.execution.filters.OpenFileHyperlinkInfo;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.vfs.VirtualFile;
+import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+/**
+ * Links file:line locations at the start of console lines to the file. A program can print a lot of lines that have
+ * nothing to do with source files, so the line is checked for something that looks like ".ext:digit" in its first
+ * word before the regex gets to see it, and the files found are remembered for the rest of the run.
+ */
 public class RustConsoleFilter implements Filter {
 	private static final Pattern MSG_LINE = Pattern.compile("\t?(\\S+\\.\\w+):(\\d+)[:\\s].*\n");
+	private static final int MAX_CACHED_FILES = 1000;
 
 	private final Project project;
 	private final String basePath;
 
+	// file name as printed -> file, null for names that don't resolve. Guarded by itself
+	private final Map<String, VirtualFile> files = new LinkedHashMap<String, VirtualFile>(16, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, VirtualFile> eldest) {
+			return size() > MAX_CACHED_FILES;
+		}
+	};
+
 	public RustConsoleFilter(Project project, String basePath) {
 		this.project = project;
 		this.basePath = basePath;
@@ -24,8 +41,8 @@ public class RustConsoleFilter implements Filter {
 	@Nullable
 	@Override
 	public Result applyFilter(String line, int entireLength) {
-		Matcher matcher = MSG_LINE.matcher(line);
-		if (!matcher.matches()) {
+		Matcher matcher = matchLocation(line);
+		if (matcher == null) {
 			return null;
 		}
 
@@ -36,6 +53,81 @@ public class RustConsoleFilter implements Filter {
 		} catch (NumberFormatException e) {
 			return null;
 		}
+		VirtualFile vf = findFile(fileName);
+		if (vf == null) {
+			return null;
+		}
+
+		HyperlinkInfo hyperlinkInfo = new OpenFileHyperlinkInfo(project, vf, fileLine);
+		int outputStart = entireLength - line.length();
+
+		return new Result(outputStart + matcher.start(1), outputStart + matcher.end(2), hyperlinkInfo);
+	}
+
+	/**
+	 * @return a matcher that matched the line, with the file name in group 1 and the line number in group 2, or null if
+	 * the line doesn't start with a location.
+	 */
+	@Nullable
+	public static Matcher matchLocation(@NotNull String line) {
+		if (!mayStartWithLocation(line)) {
+			return null;
+		}
+		Matcher matcher = MSG_LINE.matcher(line);
+		return matcher.matches() ? matcher : null;
+	}
+
+	/**
+	 * Cheap necessary condition for MSG_LINE: the first word, after an optional tab, contains ".word:digit" and the
+	 * line ends with a newline.
+	 */
+	private static boolean mayStartWithLocation(String line) {
+		int length = line.length();
+		if (length == 0 || line.charAt(length - 1) != '\n') {
+			return false;
+		}
+
+		int start = line.charAt(0) == '\t' ? 1 : 0;
+		for (int i = start; i < length - 1; i++) {
+			char c = line.charAt(i);
+			if (Character.isWhitespace(c)) {
+				return false;
+			}
+			if (c != ':' || !isDigit(line.charAt(i + 1))) {
+				continue;
+			}
+
+			int extensionStart = i;
+			while (extensionStart > start && isWordChar(line.charAt(extensionStart - 1))) {
+				extensionStart--;
+			}
+			// at least one character of extension and one of file name before the dot
+			if (extensionStart < i && extensionStart - 1 > start && line.charAt(extensionStart - 1) == '.') {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static boolean isDigit(char c) {
+		return c >= '0' && c <= '9';
+	}
+
+	private static boolean isWordChar(char c) {
+		return isDigit(c) || (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_';
+	}
+
+	@Nullable
+	private VirtualFile findFile(String fileName) {
+		synchronized (files) {
+			if (files.containsKey(fileName)) {
+				VirtualFile vf = files.get(fileName);
+				if (vf == null || vf.isValid()) {
+					return vf;
+				}
+			}
+		}
+
 		VirtualFile vf;
 		if (fileName.startsWith("/") || fileName.contains(":")) {
 			vf = project.getBaseDir().getFileSystem().findFileByPath(fileName);
@@ -44,13 +136,10 @@ public class RustConsoleFilter implements Filter {
 		} else {
 			vf = project.getBaseDir().getFileSystem().findFileByPath(basePath + "/" + fileName);
 		}
-		if (vf == null) {
-			return null;
-		}
 
-		HyperlinkInfo hyperlinkInfo = new OpenFileHyperlinkInfo(project, vf, fileLine);
-		int outputStart = entireLength - line.length();
-
-		return new Result(outputStart + matcher.start(1), outputStart + matcher.end(2), hyperlinkInfo);
+		synchronized (files) {
+			files.put(fileName, vf);
+		}
+		return vf;
 	}
 }
@@ -4,6 +4,7 @@ import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.projectRoots.*;
 import com.intellij.openapi.roots.OrderRootType;
 import com.intellij.openapi.util.SystemInfo;
+import com.intellij.openapi.util.io.FileUtil;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.util.xmlb.XmlSerializer;
 import org.jdom.Element;
@@ -13,6 +14,7 @@ import vektah.rust.RustIcons;
 import vektah.rust.i18n.RustBundle;
 
 import javax.swing.*;
+import java.io.File;
 
 public class RustSdkType extends SdkType {
 	private RustSdkData sdkData;
@@ -48,6 +50,23 @@ public class RustSdkType extends SdkType {
 
     @Override
 	public void setupSdkPaths(@NotNull Sdk sdk) {
+		SdkModificator modificator = sdk.getSdkModificator();
+
+		RustSdkData data = sdkData;
+		if (data == null || !FileUtil.pathsEqual(new File(data.pathRustc).getParent(), sdk.getHomePath())) {
+			data = RustSdkUtil.testRustSdk(sdk.getHomePath());
+		}
+		if (data != null) {
+			modificator.setSdkAdditionalData(data);
+		}
+
+		// Attached sources are indexed into the application wide stub index, which lives in the system directory and
+		// is shared by every project. A given libstd is parsed once, not once per project or per restart.
+		for (VirtualFile root : RustSdkUtil.findLibrarySources(sdk.getHomePath())) {
+			modificator.addRoot(root, OrderRootType.SOURCES);
+		}
+
+		modificator.commitChanges();
 	}
 
 	@Override
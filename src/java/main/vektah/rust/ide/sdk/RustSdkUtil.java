@@ -7,14 +7,41 @@ import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.projectRoots.Sdk;
 import com.intellij.openapi.roots.ProjectRootManager;
+import com.intellij.openapi.vfs.LocalFileSystem;
 import com.intellij.openapi.vfs.VirtualFile;
 
 import java.io.File;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 public class RustSdkUtil {
 	private static final Logger LOG = Logger.getInstance(RustSdkUtil.class.getName());
 
+	/**
+	 * Results of running rustc --version, keyed on the absolute path of rustc. testRustSdk is called for every build
+	 * so we only want to fork when the binary has actually been replaced.
+	 */
+	private static final ConcurrentMap<String, SdkProbe> probes = new ConcurrentHashMap<String, SdkProbe>();
+
+	private static class SdkProbe {
+		final long lastModified;
+		final long length;
+		final String version;
+
+		SdkProbe(File rustc, String version) {
+			this.lastModified = rustc.lastModified();
+			this.length = rustc.length();
+			this.version = version;
+		}
+
+		boolean isUpToDate(File rustc) {
+			return rustc.lastModified() == lastModified && rustc.length() == length;
+		}
+	}
+
 	public static RustSdkData getCompilerInfo(File rustc) {
         final RustSdkData sdkData = new RustSdkData(rustc.getAbsolutePath());
 
@@ -78,6 +105,13 @@ public class RustSdkUtil {
             return null;
         }
 
+        SdkProbe probe = probes.get(rustc.getAbsolutePath());
+        if (probe != null && probe.isUpToDate(rustc)) {
+            RustSdkData result = new RustSdkData(rustc.getAbsolutePath());
+            result.version = probe.version;
+            return result;
+        }
+
         RustSdkData result = RustSdkUtil.getCompilerInfo(rustc);
         // Get version and host info
         if (result == null) {
@@ -85,9 +119,44 @@ public class RustSdkUtil {
             return null;
         }
 
+        probes.put(rustc.getAbsolutePath(), new SdkProbe(rustc, result.version));
         return result;
 	}
 
+	/**
+	 * Places the library sources (libstd, libcore, ...) can be found relative to the directory holding rustc, for
+	 * both installed toolchains and in tree builds.
+	 */
+	private static final String[] LIBRARY_SOURCE_DIRS = {
+			"../lib/rustlib/src/rust/src",
+			"../share/rust/src",
+			"../src",
+			"../../../src",
+	};
+
+	/**
+	 * Finds the lib* crate directories of the standard library sources that belong to the rustc in sdkHome.
+	 */
+	public static List<VirtualFile> findLibrarySources(String sdkHome) {
+		List<VirtualFile> roots = new ArrayList<VirtualFile>();
+
+		for (String candidate : LIBRARY_SOURCE_DIRS) {
+			VirtualFile src = LocalFileSystem.getInstance().refreshAndFindFileByIoFile(new File(sdkHome, candidate));
+			if (src == null || src.findChild("libstd") == null) {
+				continue;
+			}
+
+			for (VirtualFile child : src.getChildren()) {
+				if (child.isDirectory() && child.getName().startsWith("lib")) {
+					roots.add(child);
+				}
+			}
+			break;
+		}
+
+		return roots;
+	}
+
 	public static Sdk getSdk(Project project) {
 		Sdk sdk = ProjectRootManager.getInstance(project).getProjectSdk();
 
@@ -0,0 +1,80 @@
+package vektah.rust.ide.structure;
+
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiTreeChangeAdapter;
+import com.intellij.psi.PsiTreeChangeEvent;
+import com.intellij.psi.impl.PsiTreeChangeEventImpl;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import vektah.rust.psi.RustTokens;
+
+/**
+ * Tells RustStructureViewNode which element's children changed: the closest element around a change that has
+ * structure view children. Changes inside statement blocks, including reparsing a whole block, can't change the
+ * structure and are ignored.
+ */
+class RustStructureChangeListener extends PsiTreeChangeAdapter {
+    private final PsiFile file;
+
+    RustStructureChangeListener(@NotNull PsiFile file) {
+        this.file = file;
+    }
+
+    @Override
+    public void childAdded(@NotNull PsiTreeChangeEvent event) {
+        changed(event.getParent(), event.getChild());
+    }
+
+    @Override
+    public void childRemoved(@NotNull PsiTreeChangeEvent event) {
+        changed(event.getParent(), event.getChild());
+    }
+
+    @Override
+    public void childReplaced(@NotNull PsiTreeChangeEvent event) {
+        changed(event.getParent(), event.getNewChild());
+    }
+
+    @Override
+    public void childMoved(@NotNull PsiTreeChangeEvent event) {
+        changed(event.getOldParent(), event.getChild());
+        changed(event.getNewParent(), event.getChild());
+    }
+
+    @Override
+    public void childrenChanged(@NotNull PsiTreeChangeEvent event) {
+        // Reparsing fires a generic change for the whole file on top of the events for what actually changed
+        if (event instanceof PsiTreeChangeEventImpl && ((PsiTreeChangeEventImpl) event).isGenericChange()) {
+            return;
+        }
+
+        changed(event.getParent(), null);
+    }
+
+    private void changed(@Nullable PsiElement parent, @Nullable PsiElement child) {
+        if (parent == null || !parent.isValid() || parent.getContainingFile() != file) {
+            return;
+        }
+        if (child != null && isStatementBlock(child)) {
+            return;
+        }
+
+        for (PsiElement element = parent; element != null; element = element.getParent()) {
+            if (isStatementBlock(element)) {
+                return;
+            }
+            if (element instanceof HasStructureViewChildren) {
+                RustStructureViewNode.childrenChanged(element);
+                return;
+            }
+            if (element instanceof PsiFile) {
+                return;
+            }
+        }
+    }
+
+    private static boolean isStatementBlock(PsiElement element) {
+        return element.getNode() != null && element.getNode().getElementType() == RustTokens.STATEMENT_BLOCK;
+    }
+}
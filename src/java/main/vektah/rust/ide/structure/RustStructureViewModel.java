@@ -4,16 +4,20 @@ import com.intellij.ide.structureView.StructureViewModel;
 import com.intellij.ide.structureView.StructureViewModelBase;
 import com.intellij.ide.structureView.StructureViewTreeElement;
 import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiManager;
 import org.jetbrains.annotations.NotNull;
 
 class RustStructureViewModel extends StructureViewModelBase implements StructureViewModel.ElementInfoProvider {
     public RustStructureViewModel(@NotNull PsiFile psiFile) {
         super(psiFile, new RustStructureViewNode(psiFile));
+        PsiManager.getInstance(psiFile.getProject()).addPsiTreeChangeListener(new RustStructureChangeListener(psiFile), this);
     }
 
     @Override
     public boolean isAlwaysShowsPlus(StructureViewTreeElement structureViewTreeElement) {
-        return false;
+        // Containers get a plus without their children being looked up, they are only found once expanded
+        return structureViewTreeElement instanceof RustStructureViewNode
+                && !((RustStructureViewNode) structureViewTreeElement).isLeafNode();
     }
 
     @Override
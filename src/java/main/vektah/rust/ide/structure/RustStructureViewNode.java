@@ -1,39 +1,81 @@
 package vektah.rust.ide.structure;
 
-import com.google.common.collect.ImmutableList;
 import com.intellij.ide.structureView.StructureViewTreeElement;
 import com.intellij.ide.structureView.impl.common.PsiTreeElementBase;
+import com.intellij.openapi.util.Key;
+import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiNamedElement;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import javax.swing.*;
-import java.util.Collection;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static vektah.rust.RustIcons.forNode;
 
+/**
+ * The children of a node are only looked up when the tree asks for them, and are kept until RustStructureChangeListener
+ * reports a change in this very element (not counting its descendants that have children of their own). When they are
+ * looked up again the nodes of the children that are still there are reused, so an edit only rebuilds the part of the
+ * tree it touched.
+ */
 class RustStructureViewNode extends PsiTreeElementBase<PsiNamedElement> {
-    private PsiNamedElement psiElement;
+    private static final Key<Long> MODIFICATION_COUNT = Key.create("rust.structure.modification.count");
+    private static final AtomicLong ourModificationCount = new AtomicLong();
+
+    private final PsiNamedElement psiElement;
+
+    private volatile CachedChildren cachedChildren;
 
     public RustStructureViewNode(PsiNamedElement psiElement) {
         super(psiElement);
         this.psiElement = psiElement;
     }
 
+    /**
+     * Makes the nodes of the given element look up their children again.
+     */
+    static void childrenChanged(@NotNull PsiElement element) {
+        element.putUserData(MODIFICATION_COUNT, ourModificationCount.incrementAndGet());
+    }
+
+    private static long getModificationCount(PsiElement element) {
+        Long count = element.getUserData(MODIFICATION_COUNT);
+        return count != null ? count : 0;
+    }
+
     @NotNull
     @Override
     public Collection<StructureViewTreeElement> getChildrenBase() {
-        ImmutableList.Builder<StructureViewTreeElement> listBuilder = ImmutableList.builder();
+        if (!(psiElement instanceof HasStructureViewChildren) || !psiElement.isValid()) {
+            return Collections.emptyList();
+        }
 
-        if (psiElement instanceof HasStructureViewChildren) {
-            for (PsiNamedElement child : ((HasStructureViewChildren) psiElement).getChildrenItems()) {
-                    listBuilder.add(new RustStructureViewNode(child));
+        long stamp = getModificationCount(psiElement);
+        CachedChildren cached = cachedChildren;
+        if (cached != null && cached.stamp == stamp) {
+            return cached.nodes;
+        }
+
+        Map<PsiElement, StructureViewTreeElement> oldNodes = new HashMap<PsiElement, StructureViewTreeElement>();
+        if (cached != null) {
+            for (StructureViewTreeElement node : cached.nodes) {
+                oldNodes.put(((RustStructureViewNode) node).psiElement, node);
             }
         }
 
-        return listBuilder.build();
-    }
+        List<? extends PsiNamedElement> items = ((HasStructureViewChildren) psiElement).getChildrenItems();
+        List<StructureViewTreeElement> nodes = new ArrayList<StructureViewTreeElement>(items.size());
+        for (PsiNamedElement child : items) {
+            StructureViewTreeElement node = oldNodes.get(child);
+            nodes.add(node != null ? node : new RustStructureViewNode(child));
+        }
 
+        cached = new CachedChildren(stamp, Collections.unmodifiableList(nodes));
+        cachedChildren = cached;
+        return cached.nodes;
+    }
 
     @Override
     public Icon getIcon(boolean open) {
@@ -50,4 +92,13 @@ class RustStructureViewNode extends PsiTreeElementBase<PsiNamedElement> {
         return ! (psiElement instanceof HasStructureViewChildren);
     }
 
+    private static class CachedChildren {
+        final long stamp;
+        final List<StructureViewTreeElement> nodes;
+
+        CachedChildren(long stamp, List<StructureViewTreeElement> nodes) {
+            this.stamp = stamp;
+            this.nodes = nodes;
+        }
+    }
 }
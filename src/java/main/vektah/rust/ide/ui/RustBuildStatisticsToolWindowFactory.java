@@ -0,0 +1,138 @@
+package vektah.rust.ide.ui;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.project.DumbAware;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.wm.ToolWindow;
+import com.intellij.openapi.wm.ToolWindowFactory;
+import com.intellij.ui.components.JBScrollPane;
+import com.intellij.ui.content.Content;
+import com.intellij.ui.content.ContentFactory;
+import com.intellij.ui.table.JBTable;
+import org.jetbrains.annotations.NotNull;
+import vektah.rust.i18n.RustBundle;
+import vektah.rust.ide.builder.RustBuildMetrics;
+import vektah.rust.ide.builder.RustBuildStatistics;
+
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import java.awt.*;
+import java.util.List;
+
+/**
+ * Percentiles of where build time went over the last builds, so a slow build can be blamed on the queue or on rustc.
+ */
+public class RustBuildStatisticsToolWindowFactory implements ToolWindowFactory, DumbAware {
+	@Override
+	public void createToolWindowContent(@NotNull Project project, @NotNull ToolWindow toolWindow) {
+		final RustBuildStatistics statistics = RustBuildStatistics.getInstance(project);
+		final StatisticsModel model = new StatisticsModel();
+		final JLabel summary = new JLabel();
+
+		final JPanel panel = new JPanel(new BorderLayout());
+		panel.add(summary, BorderLayout.NORTH);
+		panel.add(new JBScrollPane(new JBTable(model)), BorderLayout.CENTER);
+
+		final Runnable refresh = new Runnable() {
+			@Override
+			public void run() {
+				List<RustBuildMetrics> history = statistics.getHistory();
+				model.setHistory(history);
+				summary.setText(RustBundle.message("build.statistics.summary", history.size(), RustBuildStatistics.HISTORY_SIZE));
+			}
+		};
+		refresh.run();
+
+		final RustBuildStatistics.ChangeListener listener = new RustBuildStatistics.ChangeListener() {
+			@Override
+			public void buildAdded(@NotNull RustBuildMetrics metrics) {
+				ApplicationManager.getApplication().invokeLater(refresh);
+			}
+		};
+		statistics.addChangeListener(listener);
+
+		final Content content = ContentFactory.SERVICE.getInstance().createContent(panel, "", false);
+		content.setDisposer(new Disposable() {
+			@Override
+			public void dispose() {
+				statistics.removeChangeListener(listener);
+			}
+		});
+		toolWindow.getContentManager().addContent(content);
+	}
+
+	private static class StatisticsModel extends AbstractTableModel {
+		private static final String[] COLUMNS = {"", "Last", "p50", "p90", "p99", "Max"};
+		private static final double[] PERCENTILES = {50, 90, 99, 100};
+
+		private enum Row {
+			TOTAL("Total (ms)"),
+			REQUEST_QUEUE("Request queue (ms)"),
+			BUILD_QUEUE("Build queue (ms)"),
+			SPAWN("Up to date check and spawn (ms)"),
+			RUSTC("rustc (ms)"),
+			PARSE("Diagnostic parsing (ms)"),
+			STDERR("stderr (bytes)");
+
+			final String title;
+
+			Row(String title) {
+				this.title = title;
+			}
+
+			long get(RustBuildMetrics metrics) {
+				switch (this) {
+					case TOTAL: return metrics.getTotalTime();
+					case REQUEST_QUEUE: return metrics.getRequestQueueTime();
+					case BUILD_QUEUE: return metrics.getBuildQueueTime();
+					case SPAWN: return metrics.getSpawnTime();
+					case RUSTC: return metrics.getRustcTime();
+					case PARSE: return metrics.getRustcTime() < 0 ? -1 : metrics.getParseTime();
+					default: return metrics.getRustcTime() < 0 ? -1 : metrics.getStderrBytes();
+				}
+			}
+		}
+
+		private long[][] myValues = new long[Row.values().length][0];
+
+		void setHistory(List<RustBuildMetrics> history) {
+			myValues = new long[Row.values().length][history.size()];
+			for (int i = 0; i < history.size(); i++) {
+				for (Row row : Row.values()) {
+					myValues[row.ordinal()][i] = row.get(history.get(i));
+				}
+			}
+			fireTableDataChanged();
+		}
+
+		@Override
+		public int getRowCount() {
+			return Row.values().length;
+		}
+
+		@Override
+		public int getColumnCount() {
+			return COLUMNS.length;
+		}
+
+		@Override
+		public String getColumnName(int column) {
+			return COLUMNS[column];
+		}
+
+		@Override
+		public Object getValueAt(int rowIndex, int columnIndex) {
+			Row row = Row.values()[rowIndex];
+			if (columnIndex == 0) {
+				return row.title;
+			}
+
+			long[] values = myValues[rowIndex];
+			long value = columnIndex == 1
+					? (values.length == 0 ? -1 : values[values.length - 1])
+					: RustBuildStatistics.percentile(values, PERCENTILES[columnIndex - 2]);
+			return value < 0 ? "-" : String.valueOf(value);
+		}
+	}
+}
@@ -0,0 +1,26 @@
+package vektah.rust.psi;
+
+import com.intellij.psi.tree.IElementType;
+import org.jetbrains.annotations.NonNls;
+import org.jetbrains.annotations.NotNull;
+import vektah.rust.psi.stubs.RustItemStubElementType;
+
+/**
+ * Used by the generated RustTokens (see elementTypeFactory in RustGrammar.bnf) for the composite element types that
+ * need something smarter than a plain RustTokenType.
+ */
+public class RustElementTypeFactory {
+	private RustElementTypeFactory() {}
+
+	public static IElementType createElementType(@NotNull @NonNls String debugName) {
+		if ("STATEMENT_BLOCK".equals(debugName)) {
+			return new RustStatementBlockElementType(debugName);
+		}
+
+		if (debugName.endsWith("_ITEM")) {
+			return new RustItemStubElementType(debugName);
+		}
+
+		return new RustTokenType(debugName);
+	}
+}
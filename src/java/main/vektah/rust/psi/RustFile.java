@@ -1,6 +1,5 @@
 package vektah.rust.psi;
 
-import com.google.common.collect.ImmutableList;
 import com.intellij.extapi.psi.PsiFileBase;
 import com.intellij.openapi.fileTypes.FileType;
 import com.intellij.psi.FileViewProvider;
@@ -12,6 +11,7 @@ import vektah.rust.i18n.RustBundle;
 import vektah.rust.ide.structure.HasStructureViewChildren;
 
 import javax.swing.*;
+import java.util.Arrays;
 import java.util.List;
 
 public class RustFile extends PsiFileBase implements HasStructureViewChildren {
@@ -35,8 +35,12 @@ public class RustFile extends PsiFileBase implements HasStructureViewChildren {
 		return super.getIcon(flags);
 	}
 
-    @Override
-    public List<? extends PsiNamedElement> getChildrenItems() {
-        return ImmutableList.copyOf(findChildrenByClass(PsiNamedElement.class));
-    }
+	/**
+	 * Read from the AST even when there is a stub: extern blocks and macro_rules aren't stubbed, and the fn_item stub
+	 * of an extern fn would show up as a top level item.
+	 */
+	@Override
+	public List<? extends PsiNamedElement> getChildrenItems() {
+		return Arrays.asList(findChildrenByClass(PsiNamedElement.class));
+	}
 }
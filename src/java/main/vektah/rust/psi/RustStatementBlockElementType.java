@@ -0,0 +1,66 @@
+package vektah.rust.psi;
+
+import com.intellij.lang.ASTNode;
+import com.intellij.lang.Language;
+import com.intellij.lexer.Lexer;
+import com.intellij.openapi.project.Project;
+import com.intellij.psi.impl.source.tree.LazyParseableElement;
+import com.intellij.psi.tree.IElementType;
+import com.intellij.psi.tree.IReparseableElementType;
+import org.jetbrains.annotations.NonNls;
+import org.jetbrains.annotations.NotNull;
+import vektah.rust.RustFlexAdapter;
+import vektah.rust.RustLanguage;
+
+/**
+ * Statement blocks (function bodies and every block nested inside them) can be reparsed on their own, so an edit
+ * inside a function only reparses the innermost block around it instead of the whole file.
+ *
+ * The default parseContents() runs RustParser with this type as the root, which the generated parser dispatches
+ * straight to the statement_block rule.
+ */
+public class RustStatementBlockElementType extends IReparseableElementType {
+	public RustStatementBlockElementType(@NotNull @NonNls String debugName) {
+		super(debugName, RustLanguage.INSTANCE);
+	}
+
+	/**
+	 * Blocks are created collapsed and only parsed once something looks inside them, which is also what lets the
+	 * reparser swap a single block for a new one.
+	 */
+	@Override
+	public ASTNode createNode(CharSequence text) {
+		return new LazyParseableElement(this, text);
+	}
+
+	/**
+	 * The new text can only replace the old block if it is still exactly one block: it starts with '{', ends with
+	 * the matching '}' and the braces never balance out before that.
+	 */
+	@Override
+	public boolean isParsable(CharSequence buffer, Language fileLanguage, Project project) {
+		Lexer lexer = new RustFlexAdapter(false);
+		lexer.start(buffer);
+
+		if (lexer.getTokenType() != RustTokens.OPEN_BRACE) {
+			return false;
+		}
+
+		int depth = 0;
+		IElementType type;
+		while ((type = lexer.getTokenType()) != null) {
+			if (type == RustTokens.OPEN_BRACE) {
+				depth++;
+			} else if (type == RustTokens.CLOSE_BRACE) {
+				depth--;
+				if (depth == 0) {
+					lexer.advance();
+					return lexer.getTokenType() == null;
+				}
+			}
+			lexer.advance();
+		}
+
+		return false;
+	}
+}
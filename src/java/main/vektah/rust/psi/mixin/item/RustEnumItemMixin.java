@@ -3,28 +3,28 @@ package vektah.rust.psi.mixin.item;
 import com.intellij.lang.ASTNode;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiNameIdentifierOwner;
+import com.intellij.psi.PsiNamedElement;
+import com.intellij.psi.stubs.IStubElementType;
 import com.intellij.util.IncorrectOperationException;
 import org.jetbrains.annotations.NonNls;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
+import vektah.rust.ide.structure.HasStructureViewChildren;
+import vektah.rust.psi.RustEnumBody;
 import vektah.rust.psi.RustEnumItem;
 import vektah.rust.psi.impl.RustItemImpl;
+import vektah.rust.psi.stubs.RustItemStub;
 
-public abstract class RustEnumItemMixin extends RustItemImpl implements RustEnumItem, PsiNameIdentifierOwner {
+import java.util.Collections;
+import java.util.List;
+
+public abstract class RustEnumItemMixin extends RustItemImpl implements RustEnumItem, PsiNameIdentifierOwner, HasStructureViewChildren {
     public RustEnumItemMixin(ASTNode node) {
         super(node);
     }
 
-    @Nullable
-    @Override
-    public String getName() {
-        PsiElement nameIdentifier = getNameIdentifier();
-
-        if (nameIdentifier != null) {
-            return nameIdentifier.getText();
-        }
-
-        return null;
+    public RustEnumItemMixin(RustItemStub stub, IStubElementType nodeType) {
+        super(stub, nodeType);
     }
 
     @Nullable
@@ -33,6 +33,16 @@ public abstract class RustEnumItemMixin extends RustItemImpl implements RustEnum
         return getItemName();
     }
 
+    @Override
+    public List<? extends PsiNamedElement> getChildrenItems() {
+        RustEnumBody body = getEnumBody();
+        if (body == null) {
+            return Collections.emptyList();
+        }
+
+        return body.getEnumVariantList();
+    }
+
     @Override
     public PsiElement setName(@NonNls @NotNull String s) throws IncorrectOperationException {
         return null;
@@ -0,0 +1,66 @@
+package vektah.rust.psi.mixin.item;
+
+import com.intellij.lang.ASTNode;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiNamedElement;
+import org.jetbrains.annotations.Nullable;
+import vektah.rust.ide.structure.HasStructureViewChildren;
+import vektah.rust.psi.RustExternBlock;
+import vektah.rust.psi.RustExternCrate;
+import vektah.rust.psi.RustExternFunction;
+import vektah.rust.psi.RustExternItem;
+import vektah.rust.psi.RustTokens;
+import vektah.rust.psi.impl.RustItemImpl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * extern crate, extern block or extern fn. There is no stub for these, so the name comes from the AST: the crate,
+ * the ABI of the block ("extern" when there is none) or the function.
+ */
+public abstract class RustExternItemMixin extends RustItemImpl implements RustExternItem, HasStructureViewChildren {
+    public RustExternItemMixin(ASTNode node) {
+        super(node);
+    }
+
+    @Nullable
+    @Override
+    public String getName() {
+        RustExternCrate crate = getExternCrate();
+        if (crate != null) {
+            ASTNode crateName = crate.getNode().findChildByType(RustTokens.IDENTIFIER);
+            return crateName != null ? crateName.getText() : null;
+        }
+
+        RustExternBlock block = getExternBlock();
+        if (block != null) {
+            ASTNode abi = block.getNode().findChildByType(RustTokens.STRING_LIT);
+            return abi != null ? "extern " + abi.getText() : "extern";
+        }
+
+        RustExternFunction function = getExternFunction();
+        if (function != null && function.getFnItem() != null) {
+            return function.getFnItem().getName();
+        }
+
+        return null;
+    }
+
+    @Override
+    public List<? extends PsiNamedElement> getChildrenItems() {
+        RustExternBlock block = getExternBlock();
+        if (block == null) {
+            return Collections.emptyList();
+        }
+
+        List<PsiNamedElement> children = new ArrayList<PsiNamedElement>();
+        for (PsiElement child = block.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (child instanceof PsiNamedElement) {
+                children.add((PsiNamedElement) child);
+            }
+        }
+        return children;
+    }
+}
@@ -3,31 +3,26 @@ package vektah.rust.psi.mixin.item;
 import com.intellij.lang.ASTNode;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiNameIdentifierOwner;
+import com.intellij.psi.stubs.IStubElementType;
 import com.intellij.util.IncorrectOperationException;
 import org.jetbrains.annotations.NonNls;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import vektah.rust.psi.RustFnItem;
 import vektah.rust.psi.impl.RustItemImpl;
+import vektah.rust.psi.stubs.RustItemStub;
 
 public abstract class RustFnItemMixin extends RustItemImpl implements RustFnItem, PsiNameIdentifierOwner{
     public RustFnItemMixin(ASTNode node) {
         super(node);
     }
 
-    @Override
-    public PsiElement setName(@NonNls @NotNull String s) throws IncorrectOperationException {
-        return null;
+    public RustFnItemMixin(RustItemStub stub, IStubElementType nodeType) {
+        super(stub, nodeType);
     }
 
     @Override
-    public String getName() {
-        PsiElement nameIdentifier = getNameIdentifier();
-
-        if (nameIdentifier != null) {
-            return nameIdentifier.getText();
-        }
-
+    public PsiElement setName(@NonNls @NotNull String s) throws IncorrectOperationException {
         return null;
     }
 
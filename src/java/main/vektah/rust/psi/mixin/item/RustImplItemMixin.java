@@ -3,13 +3,17 @@ package vektah.rust.psi.mixin.item;
 import com.intellij.lang.ASTNode;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiNamedElement;
+import com.intellij.psi.stubs.IStubElementType;
 import com.intellij.util.IncorrectOperationException;
 import org.jetbrains.annotations.NonNls;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import vektah.rust.ide.structure.HasStructureViewChildren;
+import vektah.rust.psi.RustImplBlock;
 import vektah.rust.psi.RustImplItem;
-import vektah.rust.psi.RustType;
+import vektah.rust.psi.RustItem;
 import vektah.rust.psi.impl.RustItemImpl;
+import vektah.rust.psi.stubs.RustItemStub;
 
 import java.util.Collections;
 import java.util.List;
@@ -19,28 +23,39 @@ public abstract class RustImplItemMixin extends RustItemImpl implements RustImpl
         super(node);
     }
 
+    public RustImplItemMixin(RustItemStub stub, IStubElementType nodeType) {
+        super(stub, nodeType);
+    }
+
     @Override
     public PsiElement setName(@NonNls @NotNull String s) throws IncorrectOperationException {
         return null;
     }
 
+    /**
+     * Impls have no name of their own, they are called after the type they are for.
+     */
+    @Nullable
     @Override
-    public String getName() {
-        RustType type = getType();
-
-        if (type != null) {
-            return type.getText();
-        }
-
-        return null;
+    public PsiElement getNameIdentifier() {
+        return getType();
     }
 
+    /**
+     * An impl body only holds fn items, which are all stubbed, so the stub gives the same children as the AST.
+     */
     @Override
     public List<? extends PsiNamedElement> getChildrenItems() {
-        if (getImplBlock() == null) {
+        List<RustItem> items = getStubChildItems();
+        if (items != null) {
+            return items;
+        }
+
+        RustImplBlock block = getImplBlock();
+        if (block == null || block.getImplBody() == null) {
             return Collections.emptyList();
         }
 
-        return getImplBlock().getImplBody().getFnItemList();
+        return block.getImplBody().getFnItemList();
     }
 }
@@ -1,28 +1,115 @@
 package vektah.rust.psi.mixin.item;
 
-import com.intellij.extapi.psi.ASTWrapperPsiElement;
+import com.intellij.extapi.psi.StubBasedPsiElementBase;
 import com.intellij.lang.ASTNode;
+import com.intellij.navigation.ItemPresentation;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiNamedElement;
+import com.intellij.psi.stubs.IStubElementType;
+import com.intellij.psi.stubs.StubElement;
 import com.intellij.util.IncorrectOperationException;
 import org.jetbrains.annotations.NonNls;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
+
+import javax.swing.*;
+import java.util.ArrayList;
+import java.util.List;
+
+import vektah.rust.RustIcons;
 import vektah.rust.psi.RustItem;
+import vektah.rust.psi.stubs.RustItemStub;
 
-public abstract class RustItemMixin extends ASTWrapperPsiElement implements RustItem, PsiNamedElement {
+public abstract class RustItemMixin extends StubBasedPsiElementBase<RustItemStub> implements RustItem, PsiNamedElement {
     public RustItemMixin(ASTNode node) {
         super(node);
     }
 
+    public RustItemMixin(RustItemStub stub, IStubElementType nodeType) {
+        super(stub, nodeType);
+    }
+
     @Override
     public PsiElement setName(@NonNls @NotNull String s) throws IncorrectOperationException {
         return null;
     }
 
+    /**
+     * The name from the stub when there is one, so that it doesn't need the AST, otherwise the text of the name
+     * identifier.
+     */
     @Nullable
     @Override
     public String getName() {
+        RustItemStub stub = getStub();
+        if (stub != null) {
+            return stub.getName();
+        }
+
+        PsiElement nameIdentifier = getNameIdentifier();
+        if (nameIdentifier != null) {
+            return nameIdentifier.getText();
+        }
+
         return null;
     }
+
+    /**
+     * The element holding the name of the item, overridden by every item that has one.
+     */
+    @Nullable
+    public PsiElement getNameIdentifier() {
+        return null;
+    }
+
+    /**
+     * The items declared directly inside this one, read from the stub so that the structure view of a file whose
+     * AST isn't loaded doesn't have to load it. Only for items whose children are all stubbed, otherwise the stub
+     * and the AST would disagree. Null when there is no stub, the caller has to look at the PSI then.
+     */
+    @Nullable
+    protected List<RustItem> getStubChildItems() {
+        RustItemStub stub = getStub();
+        if (stub == null) {
+            return null;
+        }
+
+        List<StubElement> children = stub.getChildrenStubs();
+        List<RustItem> items = new ArrayList<RustItem>(children.size());
+        for (StubElement child : children) {
+            PsiElement psi = child.getPsi();
+            if (psi instanceof RustItem) {
+                items.add((RustItem) psi);
+            }
+        }
+        return items;
+    }
+
+    @Override
+    public ItemPresentation getPresentation() {
+        return new ItemPresentation() {
+            @Nullable
+            @Override
+            public String getPresentableText() {
+                return getName();
+            }
+
+            @Nullable
+            @Override
+            public String getLocationString() {
+                return getContainingFile().getName();
+            }
+
+            @Nullable
+            @Override
+            public Icon getIcon(boolean unused) {
+                return RustIcons.forNode(RustItemMixin.this);
+            }
+        };
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "(" + getNode().getElementType() + ")";
+    }
 }
@@ -3,6 +3,8 @@ package vektah.rust.psi.mixin.item;
 import com.intellij.lang.ASTNode;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiNameIdentifierOwner;
+import com.intellij.psi.PsiNamedElement;
+import com.intellij.psi.stubs.IStubElementType;
 import com.intellij.util.IncorrectOperationException;
 import org.jetbrains.annotations.NonNls;
 import org.jetbrains.annotations.NotNull;
@@ -11,7 +13,9 @@ import vektah.rust.ide.structure.HasStructureViewChildren;
 import vektah.rust.psi.RustModItem;
 import vektah.rust.psi.RustTokens;
 import vektah.rust.psi.impl.RustItemImpl;
+import vektah.rust.psi.stubs.RustItemStub;
 
+import java.util.Arrays;
 import java.util.List;
 
 public abstract class RustModItemMixin extends RustItemImpl implements RustModItem, PsiNameIdentifierOwner, HasStructureViewChildren{
@@ -19,20 +23,12 @@ public abstract class RustModItemMixin extends RustItemImpl implements RustModIt
         super(node);
     }
 
-    @Override
-    public PsiElement setName(@NonNls @NotNull String s) throws IncorrectOperationException {
-        return null;
+    public RustModItemMixin(RustItemStub stub, IStubElementType nodeType) {
+        super(stub, nodeType);
     }
 
-    @Nullable
     @Override
-    public String getName() {
-        PsiElement nameIdentifier = getNameIdentifier();
-
-        if (nameIdentifier != null) {
-            return nameIdentifier.getText();
-        }
-
+    public PsiElement setName(@NonNls @NotNull String s) throws IncorrectOperationException {
         return null;
     }
 
@@ -46,8 +42,12 @@ public abstract class RustModItemMixin extends RustItemImpl implements RustModIt
         return children.get(children.size()-1);
     }
 
+    /**
+     * From the AST like RustFile, the extern blocks and macro_rules a module can contain aren't stubbed.
+     */
     @Override
-    public List<? extends com.intellij.psi.PsiNamedElement> getChildrenItems() {
-        return getItemList();
+    public List<? extends PsiNamedElement> getChildrenItems() {
+        // findChildrenByClass rather than getItemList, macro_rules aren't items
+        return Arrays.asList(findChildrenByClass(PsiNamedElement.class));
     }
 }
@@ -3,32 +3,26 @@ package vektah.rust.psi.mixin.item;
 import com.intellij.lang.ASTNode;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiNameIdentifierOwner;
+import com.intellij.psi.stubs.IStubElementType;
 import com.intellij.util.IncorrectOperationException;
 import org.jetbrains.annotations.NonNls;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import vektah.rust.psi.RustStaticItem;
 import vektah.rust.psi.impl.RustItemImpl;
+import vektah.rust.psi.stubs.RustItemStub;
 
 public abstract class RustStaticItemMixin extends RustItemImpl implements RustStaticItem, PsiNameIdentifierOwner {
     public RustStaticItemMixin(ASTNode node) {
         super(node);
     }
 
-    @Override
-    public PsiElement setName(@NonNls @NotNull String s) throws IncorrectOperationException {
-        return null;
+    public RustStaticItemMixin(RustItemStub stub, IStubElementType nodeType) {
+        super(stub, nodeType);
     }
 
-    @Nullable
     @Override
-    public String getName() {
-        PsiElement nameIdentifier = getNameIdentifier();
-
-        if (nameIdentifier != null) {
-            return nameIdentifier.getText();
-        }
-
+    public PsiElement setName(@NonNls @NotNull String s) throws IncorrectOperationException {
         return null;
     }
 
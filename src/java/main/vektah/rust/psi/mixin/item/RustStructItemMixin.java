@@ -3,6 +3,7 @@ package vektah.rust.psi.mixin.item;
 import com.intellij.lang.ASTNode;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiNameIdentifierOwner;
+import com.intellij.psi.stubs.IStubElementType;
 import com.intellij.util.IncorrectOperationException;
 import org.jetbrains.annotations.NonNls;
 import org.jetbrains.annotations.NotNull;
@@ -12,6 +13,7 @@ import vektah.rust.psi.RustStructBody;
 import vektah.rust.psi.RustStructBodyBlock;
 import vektah.rust.psi.RustStructItem;
 import vektah.rust.psi.impl.RustItemImpl;
+import vektah.rust.psi.stubs.RustItemStub;
 
 import java.util.Collections;
 import java.util.List;
@@ -21,20 +23,12 @@ public abstract class RustStructItemMixin extends RustItemImpl implements RustSt
         super(node);
     }
 
-    @Override
-    public PsiElement setName(@NonNls @NotNull String s) throws IncorrectOperationException {
-        return null;
+    public RustStructItemMixin(RustItemStub stub, IStubElementType nodeType) {
+        super(stub, nodeType);
     }
 
-    @Nullable
     @Override
-    public String getName() {
-        PsiElement nameIdentifier = getNameIdentifier();
-
-        if (nameIdentifier != null) {
-            return nameIdentifier.getText();
-        }
-
+    public PsiElement setName(@NonNls @NotNull String s) throws IncorrectOperationException {
         return null;
     }
 
@@ -3,25 +3,23 @@ package vektah.rust.psi.mixin.item;
 import com.intellij.lang.ASTNode;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiNameIdentifierOwner;
+import com.intellij.psi.PsiNamedElement;
+import com.intellij.psi.stubs.IStubElementType;
 import org.jetbrains.annotations.Nullable;
+import vektah.rust.ide.structure.HasStructureViewChildren;
 import vektah.rust.psi.RustTraitItem;
 import vektah.rust.psi.impl.RustItemImpl;
+import vektah.rust.psi.stubs.RustItemStub;
 
-public abstract class RustTraitItemMixin extends RustItemImpl implements RustTraitItem, PsiNameIdentifierOwner{
+import java.util.List;
+
+public abstract class RustTraitItemMixin extends RustItemImpl implements RustTraitItem, PsiNameIdentifierOwner, HasStructureViewChildren {
     public RustTraitItemMixin(ASTNode node) {
         super(node);
     }
 
-    @Nullable
-    @Override
-    public String getName() {
-        PsiElement nameIdentifier = getNameIdentifier();
-
-        if (nameIdentifier != null) {
-            return nameIdentifier.getText();
-        }
-
-        return null;
+    public RustTraitItemMixin(RustItemStub stub, IStubElementType nodeType) {
+        super(stub, nodeType);
     }
 
     @Nullable
@@ -29,4 +27,9 @@ public abstract class RustTraitItemMixin extends RustItemImpl implements RustTra
     public PsiElement getNameIdentifier() {
         return getItemName();
     }
+
+    @Override
+    public List<? extends PsiNamedElement> getChildrenItems() {
+        return getTraitFunctionDeclarationList();
+    }
 }
@@ -0,0 +1,44 @@
+package vektah.rust.psi.mixin.named;
+
+import com.intellij.extapi.psi.ASTWrapperPsiElement;
+import com.intellij.lang.ASTNode;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiNameIdentifierOwner;
+import com.intellij.util.IncorrectOperationException;
+import org.jetbrains.annotations.NonNls;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import vektah.rust.psi.RustTokens;
+
+/**
+ * For the elements that aren't items but are named by their first IDENTIFIER: enum variants, trait method
+ * declarations, extern variables and macro_rules.
+ */
+public abstract class RustNamedElementMixin extends ASTWrapperPsiElement implements PsiNameIdentifierOwner {
+    public RustNamedElementMixin(ASTNode node) {
+        super(node);
+    }
+
+    @Override
+    public PsiElement setName(@NonNls @NotNull String s) throws IncorrectOperationException {
+        return null;
+    }
+
+    @Nullable
+    @Override
+    public String getName() {
+        PsiElement nameIdentifier = getNameIdentifier();
+
+        if (nameIdentifier != null) {
+            return nameIdentifier.getText();
+        }
+
+        return null;
+    }
+
+    @Nullable
+    @Override
+    public PsiElement getNameIdentifier() {
+        return findChildByType(RustTokens.IDENTIFIER);
+    }
+}
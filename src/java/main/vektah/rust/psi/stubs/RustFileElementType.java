@@ -0,0 +1,42 @@
+package vektah.rust.psi.stubs;
+
+import com.intellij.lang.ASTNode;
+import com.intellij.psi.StubBuilder;
+import com.intellij.psi.stubs.DefaultStubBuilder;
+import com.intellij.psi.stubs.PsiFileStub;
+import com.intellij.psi.tree.IStubFileElementType;
+import org.jetbrains.annotations.NotNull;
+import vektah.rust.RustLanguage;
+import vektah.rust.psi.RustTokens;
+
+public class RustFileElementType extends IStubFileElementType<PsiFileStub> {
+	// Bump this whenever the stub tree or anything that's indexed from it changes
+	public static final int STUB_VERSION = 1;
+
+	public RustFileElementType() {
+		super("FILE", RustLanguage.INSTANCE);
+	}
+
+	@Override
+	public StubBuilder getBuilder() {
+		return new DefaultStubBuilder() {
+			@Override
+			public boolean skipChildProcessingWhenBuildingStubs(@NotNull ASTNode parent, @NotNull ASTNode node) {
+				// Items declared inside function bodies aren't visible from outside, and skipping the bodies
+				// means building stubs never has to expand the lazily parsed blocks
+				return node.getElementType() == RustTokens.STATEMENT_BLOCK;
+			}
+		};
+	}
+
+	@Override
+	public int getStubVersion() {
+		return STUB_VERSION;
+	}
+
+	@NotNull
+	@Override
+	public String getExternalId() {
+		return "rust.FILE";
+	}
+}
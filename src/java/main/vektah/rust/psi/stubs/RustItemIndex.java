@@ -0,0 +1,25 @@
+package vektah.rust.psi.stubs;
+
+import com.intellij.psi.stubs.StringStubIndexExtension;
+import com.intellij.psi.stubs.StubIndexKey;
+import org.jetbrains.annotations.NotNull;
+import vektah.rust.psi.RustItem;
+
+/**
+ * Item name to item, for every item that lives outside of a function body. Impls are indexed by the text of the
+ * type they are for.
+ */
+public class RustItemIndex extends StringStubIndexExtension<RustItem> {
+	public static final StubIndexKey<String, RustItem> KEY = StubIndexKey.createIndexKey("rust.item.name");
+
+	@NotNull
+	@Override
+	public StubIndexKey<String, RustItem> getKey() {
+		return KEY;
+	}
+
+	@Override
+	public int getVersion() {
+		return RustFileElementType.STUB_VERSION;
+	}
+}
@@ -0,0 +1,30 @@
+package vektah.rust.psi.stubs;
+
+import com.intellij.psi.stubs.IStubElementType;
+import com.intellij.psi.stubs.StubBase;
+import com.intellij.psi.stubs.StubElement;
+import com.intellij.util.io.StringRef;
+import org.jetbrains.annotations.Nullable;
+import vektah.rust.psi.RustItem;
+
+/**
+ * Stub for fn, struct, enum, trait, impl, static, mod and type items. The kind of item is the stub type, so the name
+ * is all we need to store.
+ */
+public class RustItemStub extends StubBase<RustItem> {
+	private final StringRef myName;
+
+	public RustItemStub(StubElement parent, IStubElementType elementType, @Nullable StringRef name) {
+		super(parent, elementType);
+		myName = name;
+	}
+
+	public RustItemStub(StubElement parent, IStubElementType elementType, @Nullable String name) {
+		this(parent, elementType, StringRef.fromString(name));
+	}
+
+	@Nullable
+	public String getName() {
+		return StringRef.toString(myName);
+	}
+}
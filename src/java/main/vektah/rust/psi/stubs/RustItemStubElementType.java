@@ -0,0 +1,70 @@
+package vektah.rust.psi.stubs;
+
+import com.intellij.psi.stubs.*;
+import org.jetbrains.annotations.NonNls;
+import org.jetbrains.annotations.NotNull;
+import vektah.rust.RustLanguage;
+import vektah.rust.psi.RustItem;
+import vektah.rust.psi.RustTokens;
+import vektah.rust.psi.impl.*;
+
+import java.io.IOException;
+
+public class RustItemStubElementType extends IStubElementType<RustItemStub, RustItem> {
+	public RustItemStubElementType(@NotNull @NonNls String debugName) {
+		super(debugName, RustLanguage.INSTANCE);
+	}
+
+	@Override
+	public RustItem createPsi(@NotNull RustItemStub stub) {
+		if (this == RustTokens.FN_ITEM) {
+			return new RustFnItemImpl(stub, this);
+		} else if (this == RustTokens.STRUCT_ITEM) {
+			return new RustStructItemImpl(stub, this);
+		} else if (this == RustTokens.ENUM_ITEM) {
+			return new RustEnumItemImpl(stub, this);
+		} else if (this == RustTokens.TRAIT_ITEM) {
+			return new RustTraitItemImpl(stub, this);
+		} else if (this == RustTokens.IMPL_ITEM) {
+			return new RustImplItemImpl(stub, this);
+		} else if (this == RustTokens.STATIC_ITEM) {
+			return new RustStaticItemImpl(stub, this);
+		} else if (this == RustTokens.MOD_ITEM) {
+			return new RustModItemImpl(stub, this);
+		} else if (this == RustTokens.TYPE_ITEM) {
+			return new RustTypeItemImpl(stub, this);
+		}
+
+		throw new IllegalStateException("No stub based PSI for " + this);
+	}
+
+	@Override
+	public RustItemStub createStub(@NotNull RustItem psi, StubElement parentStub) {
+		return new RustItemStub(parentStub, this, psi.getName());
+	}
+
+	@NotNull
+	@Override
+	public String getExternalId() {
+		return "rust." + toString();
+	}
+
+	@Override
+	public void serialize(@NotNull RustItemStub stub, @NotNull StubOutputStream dataStream) throws IOException {
+		dataStream.writeName(stub.getName());
+	}
+
+	@NotNull
+	@Override
+	public RustItemStub deserialize(@NotNull StubInputStream dataStream, StubElement parentStub) throws IOException {
+		return new RustItemStub(parentStub, this, dataStream.readName());
+	}
+
+	@Override
+	public void indexStub(@NotNull RustItemStub stub, @NotNull IndexSink sink) {
+		String name = stub.getName();
+		if (name != null) {
+			sink.occurrence(RustItemIndex.KEY, name);
+		}
+	}
+}
@@ -0,0 +1,53 @@
+package vektah.rust;
+
+import com.intellij.lang.folding.FoldingDescriptor;
+import com.intellij.lang.folding.LanguageFolding;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.util.TextRange;
+import com.intellij.testFramework.fixtures.LightPlatformCodeInsightFixtureTestCase;
+import vektah.rust.folding.RustFoldingBuilder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class FoldingBuilderTest extends LightPlatformCodeInsightFixtureTestCase {
+	private static final String SOURCE = "use std::io::{\n    File,\n    BufferedReader\n};\n" +
+			"/* a\n   comment */\n" +
+			"struct Point {\n    x: int,\n    y: int\n}\n" +
+			"impl Point {\n    fn norm(&self) -> int {\n        match self.x {\n            0 => 0,\n            _ => 1\n        }\n    }\n}\n" +
+			"fn main() { println!(\"{}\", 1); }\n";
+
+	public void testRegions() {
+		assertEquals(Arrays.asList("0-3", "4-5", "6-9", "10-17", "11-16", "12-15"), regions(false));
+	}
+
+	public void testQuickOnlyFoldsOutermostBodies() {
+		assertEquals(Arrays.asList("0-3", "4-5", "6-9", "10-17"), regions(true));
+	}
+
+	public void testLexerRegions() {
+		String text = "/// Docs\n/// more\nfn main() {\n    let s = \"{\";\n    /* } */ if x { y }\n}\n}\n/*! a\n b */\n";
+		List<String> regions = new ArrayList<String>();
+		for (TextRange range : RustFoldingBuilder.findRegions(text)) {
+			regions.add(range.substring(text));
+		}
+		assertEquals(Arrays.asList("/// Docs\n/// more", "{\n    let s = \"{\";\n    /* } */ if x { y }\n}", "/*! a\n b */"), regions);
+	}
+
+	/**
+	 * @return the first and last line of every region.
+	 */
+	private List<String> regions(boolean quick) {
+		myFixture.configureByText("folding.rs", SOURCE);
+		Document document = myFixture.getEditor().getDocument();
+		FoldingDescriptor[] descriptors = LanguageFolding.buildFoldingDescriptors(new RustFoldingBuilder(), myFixture.getFile(), document, quick);
+
+		List<String> regions = new ArrayList<String>();
+		for (FoldingDescriptor descriptor : descriptors) {
+			TextRange range = descriptor.getRange();
+			regions.add(document.getLineNumber(range.getStartOffset()) + "-" + document.getLineNumber(range.getEndOffset()));
+		}
+		return regions;
+	}
+}
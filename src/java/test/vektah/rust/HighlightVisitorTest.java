@@ -0,0 +1,35 @@
+package vektah.rust;
+
+import com.intellij.codeInsight.daemon.impl.HighlightInfo;
+import com.intellij.lang.annotation.HighlightSeverity;
+import com.intellij.testFramework.fixtures.LightPlatformCodeInsightFixtureTestCase;
+import vektah.rust.highlight.RustChangeLocalityDetector;
+import vektah.rust.psi.RustFnItem;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class HighlightVisitorTest extends LightPlatformCodeInsightFixtureTestCase {
+	public void testAttributes() {
+		myFixture.configureByText("main.rs", "#[test]\nfn one() {}\n#[cfg(unix)]\nfn two() {}\n");
+
+		List<String> attributes = new ArrayList<String>();
+		for (HighlightInfo info : myFixture.doHighlighting()) {
+			if (info.getSeverity() == HighlightSeverity.INFORMATION) {
+				attributes.add(info.getText());
+			}
+		}
+		assertEquals(Arrays.asList("#[test]", "#[cfg(unix)]"), attributes);
+	}
+
+	public void testFunctionBodiesAreTheDirtyScope() {
+		myFixture.configureByText("main.rs", "fn main() { let x = 1; }\n");
+		RustFnItem fn = (RustFnItem) myFixture.getFile().getFirstChild();
+		RustChangeLocalityDetector detector = new RustChangeLocalityDetector();
+
+		assertSame(fn.getStatementBlock(), detector.getChangeHighlightingDirtyScopeFor(fn.getStatementBlock()));
+		assertNull(detector.getChangeHighlightingDirtyScopeFor(fn));
+		assertNull(detector.getChangeHighlightingDirtyScopeFor(myFixture.getFile()));
+	}
+}
@@ -0,0 +1,92 @@
+package vektah.rust;
+
+import com.intellij.lexer.Lexer;
+import gnu.trove.TIntArrayList;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Checks that RustFlexAdapter can be restarted from the start of any token, which is what the editor highlighter
+ * does after every keystroke.
+ */
+public class LexerRestartTest extends PyLexerTestCase {
+	private static final String SAMPLE = "fn main() {\n" +
+			"    /* outer\n" +
+			"       /* inner\n" +
+			"          /** not a doc comment */\n" +
+			"       */\n" +
+			"    */\n" +
+			"    /**\n" +
+			"     * doc\n" +
+			"     */\n" +
+			"    r##\"raw\n" +
+			"    \"# still raw\n" +
+			"    \"##;\n" +
+			"    let x = 1;\n" +
+			"}\n";
+
+	public void testRestartFromEveryToken() {
+		Tokens all = lex(SAMPLE, 0, 0);
+
+		for (int i = 0; i < all.size(); i++) {
+			Tokens restarted = lex(SAMPLE, all.starts.get(i), all.states.get(i));
+			assertEquals("Restarting at token " + i + " (offset " + all.starts.get(i) + ")", all.tail(i), restarted.toString());
+		}
+	}
+
+	public void testLongCommentIsSplitPerLine() {
+		Tokens all = lex("/* a\nb\n/* c\n*/ d\n*/", 0, 0);
+
+		assertEquals("BLOCK_COMMENT[0,5] BLOCK_COMMENT[5,7] BLOCK_COMMENT[7,12] BLOCK_COMMENT[12,17] BLOCK_COMMENT[17,19]", all.toString());
+	}
+
+	public void testParserLexerKeepsCommentsWhole() {
+		doLexerTest("/* a\n/* b */\nc */ x", new RustFlexAdapter(false), "BLOCK_COMMENT", "WHITE_SPACE", "IDENTIFIER");
+	}
+
+	private static Tokens lex(String text, int start, int state) {
+		Tokens tokens = new Tokens();
+		Lexer lexer = new RustFlexAdapter(true);
+		lexer.start(text, start, text.length(), state);
+		while (lexer.getTokenType() != null) {
+			tokens.add(lexer.getTokenType().toString(), lexer.getTokenStart(), lexer.getTokenEnd(), lexer.getState());
+			lexer.advance();
+		}
+		return tokens;
+	}
+
+	private static class Tokens {
+		final List<String> types = new ArrayList<String>();
+		final TIntArrayList starts = new TIntArrayList();
+		final TIntArrayList ends = new TIntArrayList();
+		final TIntArrayList states = new TIntArrayList();
+
+		void add(String type, int start, int end, int state) {
+			types.add(type);
+			starts.add(start);
+			ends.add(end);
+			states.add(state);
+		}
+
+		int size() {
+			return types.size();
+		}
+
+		String tail(int from) {
+			StringBuilder builder = new StringBuilder();
+			for (int i = from; i < size(); i++) {
+				if (builder.length() > 0) {
+					builder.append(' ');
+				}
+				builder.append(types.get(i)).append('[').append(starts.get(i)).append(',').append(ends.get(i)).append(']');
+			}
+			return builder.toString();
+		}
+
+		@Override
+		public String toString() {
+			return tail(0);
+		}
+	}
+}
@@ -0,0 +1,56 @@
+package vektah.rust;
+
+import com.intellij.lang.ASTNode;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.editor.Document;
+import com.intellij.psi.PsiDocumentManager;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiErrorElement;
+import com.intellij.psi.impl.source.tree.LazyParseableElement;
+import com.intellij.psi.util.PsiTreeUtil;
+import com.intellij.testFramework.fixtures.LightPlatformCodeInsightFixtureTestCase;
+import vektah.rust.psi.RustFnItem;
+import vektah.rust.psi.RustTokens;
+
+public class StatementBlockReparseTest extends LightPlatformCodeInsightFixtureTestCase {
+	public void testBlocksAreLazy() {
+		myFixture.configureByText("main.rs", "fn main() { let x = 1; }\n");
+		RustFnItem fn = (RustFnItem) myFixture.getFile().getFirstChild();
+
+		ASTNode block = fn.getNode().findChildByType(RustTokens.STATEMENT_BLOCK);
+		assertInstanceOf(block, LazyParseableElement.class);
+	}
+
+	public void testEditInsideBodyOnlyReparsesTheBlock() {
+		myFixture.configureByText("main.rs", "fn first() { let x = 1; }\nfn main() {\n    let y = 2;\n}\nfn last() { let z = 3; }\n");
+		PsiElement[] items = myFixture.getFile().getChildren();
+		RustFnItem first = (RustFnItem) items[0];
+		RustFnItem main = (RustFnItem) items[2];
+		RustFnItem last = (RustFnItem) items[4];
+		PsiElement oldBlock = main.getStatementBlock();
+		PsiElement mainName = main.getNameIdentifier();
+
+		final Document document = myFixture.getEditor().getDocument();
+		final int offset = document.getText().indexOf("let y");
+		ApplicationManager.getApplication().runWriteAction(new Runnable() {
+			@Override
+			public void run() {
+				document.insertString(offset, "let w = y + 1;\n    ");
+				PsiDocumentManager.getInstance(getProject()).commitDocument(document);
+			}
+		});
+
+		items = myFixture.getFile().getChildren();
+		assertSame(first, items[0]);
+		assertSame(main, items[2]);
+		assertSame(last, items[4]);
+		assertSame(mainName, main.getNameIdentifier());
+		assertSame(first.getStatementBlock(), ((RustFnItem) items[0]).getStatementBlock());
+
+		PsiElement newBlock = main.getStatementBlock();
+		assertNotSame(oldBlock, newBlock);
+		assertEquals("{\n    let w = y + 1;\n    let y = 2;\n}", newBlock.getText());
+		assertNull(PsiTreeUtil.findChildOfType(newBlock, PsiErrorElement.class));
+		assertEquals(myFixture.getFile().getText(), document.getText());
+	}
+}
@@ -0,0 +1,49 @@
+package vektah.rust;
+
+import com.intellij.navigation.NavigationItem;
+import com.intellij.testFramework.fixtures.LightPlatformCodeInsightFixtureTestCase;
+import com.intellij.util.ArrayUtil;
+import vektah.rust.ide.navigation.RustSymbolContributor;
+import vektah.rust.psi.RustFnItem;
+import vektah.rust.psi.RustImplItem;
+
+public class SymbolContributorTest extends LightPlatformCodeInsightFixtureTestCase {
+	private static final String SOURCE = "struct Point { x: int, y: int }\n" +
+			"enum Shape { Circle, Square }\n" +
+			"trait Draw { fn draw(&self); }\n" +
+			"impl Point {\n" +
+			"    fn origin() -> Point { fn hidden() {} Point { x: 0, y: 0 } }\n" +
+			"}\n" +
+			"mod geometry { static PI: f64 = 3.14; }\n" +
+			"fn main() {}\n";
+
+	public void testNamesComeFromIndex() {
+		myFixture.configureByText("shapes.rs", SOURCE);
+		String[] names = new RustSymbolContributor().getNames(getProject(), false);
+
+		for (String name : new String[] {"Point", "Shape", "Draw", "origin", "geometry", "PI", "main"}) {
+			assertTrue("Missing " + name, ArrayUtil.contains(name, names));
+		}
+		assertFalse("Items inside fn bodies are not indexed", ArrayUtil.contains("hidden", names));
+	}
+
+	public void testItemsByName() {
+		myFixture.configureByText("shapes.rs", SOURCE);
+		RustSymbolContributor contributor = new RustSymbolContributor();
+
+		NavigationItem[] points = contributor.getItemsByName("Point", "Point", getProject(), false);
+		assertEquals(2, points.length);
+
+		NavigationItem[] origins = contributor.getItemsByName("origin", "orig", getProject(), false);
+		assertEquals(1, origins.length);
+		assertInstanceOf(origins[0], RustFnItem.class);
+		assertEquals("origin", origins[0].getPresentation().getPresentableText());
+		assertEquals("shapes.rs", origins[0].getPresentation().getLocationString());
+
+		boolean foundImpl = false;
+		for (NavigationItem item : points) {
+			foundImpl |= item instanceof RustImplItem;
+		}
+		assertTrue(foundImpl);
+	}
+}
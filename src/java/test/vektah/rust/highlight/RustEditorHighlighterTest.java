@@ -0,0 +1,95 @@
+package vektah.rust.highlight;
+
+import com.intellij.lexer.DelegateLexer;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.editor.colors.EditorColorsManager;
+import com.intellij.openapi.editor.highlighter.HighlighterIterator;
+import com.intellij.openapi.editor.impl.DocumentImpl;
+import com.intellij.openapi.util.Key;
+import com.intellij.testFramework.fixtures.LightPlatformCodeInsightFixtureTestCase;
+import vektah.rust.RustSyntaxHighlighter;
+
+public class RustEditorHighlighterTest extends LightPlatformCodeInsightFixtureTestCase {
+	private static final Key<RustEditorHighlighter> HIGHLIGHTER = Key.create("RustEditorHighlighterTest.HIGHLIGHTER");
+
+	public void testTypingInsideNestedCommentOnlyRelexesNearby() {
+		StringBuilder builder = new StringBuilder("fn main() {}\n/*\n/*\n/*\n");
+		for (int i = 0; i < 50000; i++) {
+			builder.append(" * line ").append(i).append(" of a very long nested comment\n");
+		}
+		builder.append("*/\n*/\n*/\nfn after() {}\n");
+		String text = builder.toString();
+
+		CountingLexer lexer = new CountingLexer();
+		Document document = createDocument(text, lexer);
+		lexer.myRelexed = 0;
+
+		insert(document, text.indexOf(" * line 40000 ") + 3, "x");
+
+		assertTrue("Relexed " + lexer.myRelexed + " characters for a one character edit", lexer.myRelexed < 100);
+		assertSameTokens(document);
+	}
+
+	public void testEditsMatchLexingFromScratch() {
+		Document document = createDocument("fn main() {\n    let s = \"a\\nb\";\n    /* a /* b */ c */\n    r#\"raw\n\"#;\n}\n", new CountingLexer());
+
+		insert(document, document.getText().indexOf("\\nb") + 1, "t\\");
+		assertSameTokens(document);
+		insert(document, document.getText().indexOf("/* b"), "*/ ");
+		assertSameTokens(document);
+		insert(document, document.getText().indexOf("raw"), "\"#;\n    let t = r#\"");
+		assertSameTokens(document);
+		insert(document, 0, "/*");
+		assertSameTokens(document);
+	}
+
+	private static Document createDocument(String text, CountingLexer lexer) {
+		Document document = new DocumentImpl(text);
+		RustEditorHighlighter highlighter = new RustEditorHighlighter(EditorColorsManager.getInstance().getGlobalScheme(), lexer);
+		highlighter.setText(text);
+		document.addDocumentListener(highlighter);
+		document.putUserData(HIGHLIGHTER, highlighter);
+		return document;
+	}
+
+	private static void insert(final Document document, final int offset, final String text) {
+		ApplicationManager.getApplication().runWriteAction(new Runnable() {
+			@Override
+			public void run() {
+				document.insertString(offset, text);
+			}
+		});
+	}
+
+	private static void assertSameTokens(Document document) {
+		RustEditorHighlighter fresh = new RustEditorHighlighter(EditorColorsManager.getInstance().getGlobalScheme());
+		fresh.setText(document.getCharsSequence());
+		assertEquals(tokens(fresh), tokens(document.getUserData(HIGHLIGHTER)));
+	}
+
+	private static String tokens(RustEditorHighlighter highlighter) {
+		StringBuilder builder = new StringBuilder();
+		for (HighlighterIterator iterator = highlighter.createIterator(0); !iterator.atEnd(); iterator.advance()) {
+			builder.append(iterator.getTokenType()).append('[').append(iterator.getStart()).append(',').append(iterator.getEnd()).append("]\n");
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * The highlighting lexer, counting the characters of every token it produces.
+	 */
+	private static class CountingLexer extends DelegateLexer {
+		int myRelexed;
+
+		CountingLexer() {
+			super(new RustSyntaxHighlighter().getHighlightingLexer());
+		}
+
+		@Override
+		public void advance() {
+			myRelexed += getTokenEnd() - getTokenStart();
+			super.advance();
+		}
+	}
+}
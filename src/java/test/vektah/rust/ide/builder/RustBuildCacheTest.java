@@ -0,0 +1,86 @@
+package vektah.rust.ide.builder;
+
+import com.intellij.openapi.util.io.FileUtil;
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+public class RustBuildCacheTest extends TestCase {
+	private File myDir;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		myDir = FileUtil.createTempDirectory("rust-build-cache", null);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		FileUtil.delete(myDir);
+		super.tearDown();
+	}
+
+	public void testRestoreInAnotherCheckout() throws IOException {
+		RustBuildCache cache = new RustBuildCache(new File(myDir, "system"), 1024 * 1024);
+		File first = new File(myDir, "first");
+		File second = new File(myDir, "second");
+
+		File main = write(first, "src/main.rs", "fn main() {}");
+		File output = write(first, "out/main", "binary");
+		String key = RustBuildCache.createKey("0.12.0", "rustc " + main.getPath() + " -o " + output.getPath(), first);
+		cache.store(key, first, output, Arrays.asList(main), Long.MAX_VALUE);
+
+		File secondMain = write(second, "src/main.rs", "fn main() {}");
+		File secondOutput = new File(second, "out/main");
+		String secondKey = RustBuildCache.createKey("0.12.0", "rustc " + secondMain.getPath() + " -o " + secondOutput.getPath(), second);
+		assertEquals(key, secondKey);
+
+		List<File> inputs = cache.restore(secondKey, second, secondOutput);
+		assertEquals(Arrays.asList(secondMain), inputs);
+		assertEquals("binary", FileUtil.loadFile(secondOutput));
+	}
+
+	public void testMissWhenContentOrVersionDiffers() throws IOException {
+		RustBuildCache cache = new RustBuildCache(new File(myDir, "system"), 1024 * 1024);
+		File main = write(myDir, "main.rs", "fn main() {}");
+		File output = write(myDir, "main", "binary");
+		String key = RustBuildCache.createKey("0.12.0", "rustc main.rs", myDir);
+		cache.store(key, myDir, output, Arrays.asList(main), Long.MAX_VALUE);
+
+		assertNull(cache.restore(RustBuildCache.createKey("0.13.0", "rustc main.rs", myDir), myDir, new File(myDir, "restored")));
+
+		write(myDir, "main.rs", "fn main() { }");
+		assertNull(cache.restore(key, myDir, new File(myDir, "restored")));
+
+		// and back again, like switching branches
+		write(myDir, "main.rs", "fn main() {}");
+		assertNotNull(cache.restore(key, myDir, new File(myDir, "restored")));
+	}
+
+	public void testLeastRecentlyUsedIsEvicted() throws IOException {
+		RustBuildCache cache = new RustBuildCache(new File(myDir, "system"), 10);
+		File main = write(myDir, "main.rs", "fn main() {}");
+
+		String oldKey = RustBuildCache.createKey("0.12.0", "rustc -O main.rs", myDir);
+		cache.store(oldKey, myDir, write(myDir, "old", "123456"), Arrays.asList(main), Long.MAX_VALUE);
+		File artifacts = new File(myDir, "system/rust-build-cache/artifacts");
+		for (File artifact : artifacts.listFiles()) {
+			assertTrue(artifact.setLastModified(1000L));
+		}
+
+		String newKey = RustBuildCache.createKey("0.12.0", "rustc main.rs", myDir);
+		cache.store(newKey, myDir, write(myDir, "new", "123456"), Arrays.asList(main), Long.MAX_VALUE);
+
+		assertNull(cache.restore(oldKey, myDir, new File(myDir, "restored")));
+		assertNotNull(cache.restore(newKey, myDir, new File(myDir, "restored")));
+	}
+
+	private static File write(File directory, String path, String text) throws IOException {
+		File file = new File(directory, path);
+		FileUtil.writeToFile(file, text);
+		return file;
+	}
+}
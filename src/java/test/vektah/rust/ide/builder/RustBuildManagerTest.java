@@ -0,0 +1,115 @@
+package vektah.rust.ide.builder;
+
+import com.intellij.openapi.util.io.FileUtil;
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+
+public class RustBuildManagerTest extends TestCase {
+	private static final String OUTPUT = "/project/target/main";
+	private static final String COMMAND_LINE = "rustc src/main.rs";
+	private static final String SOURCE = "/project/src/main.rs";
+	private static final Set<String> INPUTS = Collections.singleton(SOURCE);
+
+	private File myDir;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		myDir = FileUtil.createTempDirectory("rust-build-manager", null);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		FileUtil.delete(myDir);
+		super.tearDown();
+	}
+
+	public void testSaveDuringBuildIsBuiltNext() {
+		RustBuildManager.ProjectData data = new RustBuildManager.ProjectData();
+		data.startBuild(false);
+		data.targetBuilt(OUTPUT, COMMAND_LINE, true, data.targetStarted(OUTPUT), INPUTS);
+
+		// a manual build is running rustc on a change
+		data.addChanged(Collections.singletonList(SOURCE));
+		data.startBuild(false);
+		assertFalse(data.isUpToDate(OUTPUT, COMMAND_LINE));
+		long started = data.targetStarted(OUTPUT);
+
+		// the file is saved again, the auto-make starts and queues its target behind the running one
+		data.addChanged(Collections.singletonList(SOURCE));
+		data.startBuild(false);
+		data.targetBuilt(OUTPUT, COMMAND_LINE, true, started, INPUTS);
+
+		assertFalse("the auto-make has to run rustc", data.isUpToDate(OUTPUT, COMMAND_LINE));
+		data.targetBuilt(OUTPUT, COMMAND_LINE, true, data.targetStarted(OUTPUT), INPUTS);
+		assertTrue(data.isUpToDate(OUTPUT, COMMAND_LINE));
+	}
+
+	public void testSaveDuringFirstBuildIsBuiltNext() {
+		RustBuildManager.ProjectData data = new RustBuildManager.ProjectData();
+		data.startBuild(false);
+		long started = data.targetStarted(OUTPUT);
+
+		data.addChanged(Collections.singletonList(SOURCE));
+		data.startBuild(false);
+		data.targetBuilt(OUTPUT, COMMAND_LINE, true, started, INPUTS);
+
+		assertFalse(data.isUpToDate(OUTPUT, COMMAND_LINE));
+	}
+
+	public void testRescanDuringBuildForgetsTheTarget() {
+		RustBuildManager.ProjectData data = new RustBuildManager.ProjectData();
+		data.startBuild(false);
+		long started = data.targetStarted(OUTPUT);
+
+		data.startBuild(true);
+		data.targetBuilt(OUTPUT, COMMAND_LINE, true, started, INPUTS);
+
+		assertFalse(data.isUpToDate(OUTPUT, COMMAND_LINE));
+	}
+
+	public void testOnlyChangesToInputsCount() {
+		RustBuildManager.ProjectData data = new RustBuildManager.ProjectData();
+		data.startBuild(false);
+		data.targetBuilt(OUTPUT, COMMAND_LINE, true, data.targetStarted(OUTPUT), INPUTS);
+
+		data.addChanged(Collections.singletonList("/project/src/unused.rs"));
+		data.startBuild(false);
+		assertTrue(data.isUpToDate(OUTPUT, COMMAND_LINE));
+
+		data.addDeleted(Collections.singletonList(SOURCE));
+		data.startBuild(false);
+		assertFalse(data.isUpToDate(OUTPUT, COMMAND_LINE));
+	}
+
+	public void testIncludedFileOutsideTheProjectIsChecked() throws IOException {
+		File main = write("project/src/main.rs", "static X: &'static str = include_str!(\"../../assets/x.txt\");", 1000L);
+		File included = write("assets/x.txt", "one", 1000L);
+		File output = write("project/target/main", "binary", 2000L);
+		RustUpToDateChecker checker = new RustUpToDateChecker(new File(myDir, "system"));
+		assertTrue(checker.recordBuild(output, COMMAND_LINE, Arrays.asList(main, included), 1500L));
+
+		// assets/x.txt isn't in the project content, so the build has no watched inputs
+		RustBuildManager.ProjectData data = new RustBuildManager.ProjectData();
+		data.startBuild(false);
+		data.targetBuilt(output.getPath(), COMMAND_LINE, true, data.targetStarted(output.getPath()), null);
+		assertTrue(RustBuildManager.isUpToDate(data, checker, output, COMMAND_LINE));
+
+		// no VFS event for it
+		write("assets/x.txt", "two", 3000L);
+		data.startBuild(false);
+		assertFalse(RustBuildManager.isUpToDate(data, checker, output, COMMAND_LINE));
+	}
+
+	private File write(String path, String text, long lastModified) throws IOException {
+		File file = new File(myDir, path);
+		FileUtil.writeToFile(file, text);
+		assertTrue(file.setLastModified(lastModified));
+		return file;
+	}
+}
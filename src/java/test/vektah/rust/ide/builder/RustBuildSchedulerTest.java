@@ -0,0 +1,196 @@
+package vektah.rust.ide.builder;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class RustBuildSchedulerTest extends TestCase {
+	private static final long TIMEOUT_SECONDS = 10;
+
+	// every task gets its own thread, so only the scheduler can keep tasks from running at the same time
+	private static final Executor THREAD_PER_TASK = new Executor() {
+		@Override
+		public void execute(Runnable command) {
+			new Thread(command, "RustBuildSchedulerTest").start();
+		}
+	};
+
+	private final List<String> myStarted = Collections.synchronizedList(new ArrayList<String>());
+	private final AtomicInteger myRunning = new AtomicInteger();
+	private final AtomicInteger myMaxRunning = new AtomicInteger();
+
+	public void testSameKeyRunsOneAtATimeInSubmissionOrder() throws InterruptedException {
+		RustBuildScheduler scheduler = new RustBuildScheduler(THREAD_PER_TASK, 4);
+		BlockingTask first = new BlockingTask("first");
+		BlockingTask second = new BlockingTask("second");
+		BlockingTask third = new BlockingTask("third");
+		scheduler.submit("out/main", first);
+		scheduler.submit("out/main", second);
+		scheduler.submit("out/main", third);
+
+		first.awaitStarted();
+		assertEquals(Arrays.asList("first"), myStarted);
+		first.release();
+		second.awaitStarted();
+		assertEquals(Arrays.asList("first", "second"), myStarted);
+		second.release();
+		third.awaitStarted();
+		third.release();
+		third.awaitFinished();
+
+		assertEquals(Arrays.asList("first", "second", "third"), myStarted);
+		assertEquals(1, myMaxRunning.get());
+	}
+
+	public void testDifferentKeysOverlap() throws InterruptedException {
+		RustBuildScheduler scheduler = new RustBuildScheduler(THREAD_PER_TASK, 2);
+		BlockingTask main = new BlockingTask("main");
+		BlockingTask tool = new BlockingTask("tool");
+		scheduler.submit("out/main", main);
+		scheduler.submit("out/tool", tool);
+
+		// both are running while neither has been released
+		main.awaitStarted();
+		tool.awaitStarted();
+		assertEquals(2, myRunning.get());
+
+		main.release();
+		tool.release();
+		main.awaitFinished();
+		tool.awaitFinished();
+	}
+
+	public void testParallelismLimit() throws InterruptedException {
+		RustBuildScheduler scheduler = new RustBuildScheduler(THREAD_PER_TASK, 2);
+		List<BlockingTask> tasks = new ArrayList<BlockingTask>();
+		for (int i = 0; i < 5; i++) {
+			BlockingTask task = new BlockingTask("task" + i);
+			tasks.add(task);
+			scheduler.submit("out/" + i, task);
+		}
+
+		tasks.get(0).awaitStarted();
+		tasks.get(1).awaitStarted();
+		assertEquals(2, myStarted.size());
+
+		for (BlockingTask task : tasks) {
+			task.release();
+		}
+		for (BlockingTask task : tasks) {
+			task.awaitFinished();
+		}
+		assertEquals(5, myStarted.size());
+		assertEquals(2, myMaxRunning.get());
+	}
+
+	public void testLibraryIsNotRebuiltWhileLinkedAgainst() throws InterruptedException {
+		RustBuildScheduler scheduler = new RustBuildScheduler(THREAD_PER_TASK, 4);
+		// session A has built libfoo and is linking main against it
+		BlockingTask linkMain = new BlockingTask("A main");
+		scheduler.submit("out/main", Collections.singletonList("out/libfoo.rlib"), linkMain);
+		linkMain.awaitStarted();
+
+		// session B rebuilds libfoo and then links tool against it, something unrelated is submitted in between
+		BlockingTask rebuildFoo = new BlockingTask("B libfoo");
+		scheduler.submit("out/libfoo.rlib", rebuildFoo);
+		BlockingTask unrelated = new BlockingTask("unrelated");
+		scheduler.submit("out/unrelated", unrelated);
+		unrelated.awaitStarted();
+		assertEquals(Arrays.asList("A main", "unrelated"), myStarted);
+
+		linkMain.release();
+		rebuildFoo.awaitStarted();
+		BlockingTask linkTool = new BlockingTask("B tool");
+		scheduler.submit("out/tool", Collections.singletonList("out/libfoo.rlib"), linkTool);
+		rebuildFoo.release();
+		linkTool.awaitStarted();
+		linkTool.release();
+		unrelated.release();
+		linkTool.awaitFinished();
+		unrelated.awaitFinished();
+
+		assertEquals(Arrays.asList("A main", "unrelated", "B libfoo", "B tool"), myStarted);
+	}
+
+	public void testWaitingLibraryRebuildIsNotOvertaken() throws InterruptedException {
+		RustBuildScheduler scheduler = new RustBuildScheduler(THREAD_PER_TASK, 4);
+		BlockingTask linkMain = new BlockingTask("A main");
+		scheduler.submit("out/main", Collections.singletonList("out/libfoo.rlib"), linkMain);
+		linkMain.awaitStarted();
+		BlockingTask rebuildFoo = new BlockingTask("B libfoo");
+		scheduler.submit("out/libfoo.rlib", rebuildFoo);
+
+		// reading libfoo now would keep the rebuild waiting for as long as new readers keep coming
+		BlockingTask linkTool = new BlockingTask("C tool");
+		scheduler.submit("out/tool", Collections.singletonList("out/libfoo.rlib"), linkTool);
+		BlockingTask unrelated = new BlockingTask("unrelated");
+		scheduler.submit("out/unrelated", unrelated);
+		unrelated.awaitStarted();
+		assertEquals(Arrays.asList("A main", "unrelated"), myStarted);
+
+		linkMain.release();
+		rebuildFoo.awaitStarted();
+		assertEquals(Arrays.asList("A main", "unrelated", "B libfoo"), myStarted);
+		rebuildFoo.release();
+		linkTool.awaitStarted();
+		linkTool.release();
+		unrelated.release();
+		linkTool.awaitFinished();
+		unrelated.awaitFinished();
+	}
+
+	/**
+	 * Records when it starts and then blocks until it is released.
+	 */
+	private class BlockingTask implements Runnable {
+		private final String myName;
+		private final CountDownLatch myStartedLatch = new CountDownLatch(1);
+		private final CountDownLatch myReleaseLatch = new CountDownLatch(1);
+		private final CountDownLatch myFinishedLatch = new CountDownLatch(1);
+
+		BlockingTask(String name) {
+			myName = name;
+		}
+
+		@Override
+		public void run() {
+			final int running = myRunning.incrementAndGet();
+			while (true) {
+				final int max = myMaxRunning.get();
+				if (running <= max || myMaxRunning.compareAndSet(max, running)) {
+					break;
+				}
+			}
+			myStarted.add(myName);
+			myStartedLatch.countDown();
+			try {
+				myReleaseLatch.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+			}
+			catch (InterruptedException ignored) {
+			}
+			finally {
+				myRunning.decrementAndGet();
+				myFinishedLatch.countDown();
+			}
+		}
+
+		void awaitStarted() throws InterruptedException {
+			assertTrue(myName + " didn't start", myStartedLatch.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+		}
+
+		void release() {
+			myReleaseLatch.countDown();
+		}
+
+		void awaitFinished() throws InterruptedException {
+			assertTrue(myName + " didn't finish", myFinishedLatch.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+		}
+	}
+}
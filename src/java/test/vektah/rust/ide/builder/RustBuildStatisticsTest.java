@@ -0,0 +1,43 @@
+package vektah.rust.ide.builder;
+
+import junit.framework.TestCase;
+
+import java.nio.charset.Charset;
+
+public class RustBuildStatisticsTest extends TestCase {
+	public void testEmptyHistory() {
+		assertEquals(-1, RustBuildStatistics.percentile(new long[0], 50));
+		assertEquals(-1, RustBuildStatistics.percentile(new long[0], 100));
+	}
+
+	public void testUnknownValuesAreSkipped() {
+		assertEquals(-1, RustBuildStatistics.percentile(new long[]{-1, -1}, 50));
+		assertEquals(3, RustBuildStatistics.percentile(new long[]{-1, 5, -1, 3}, 50));
+		assertEquals(5, RustBuildStatistics.percentile(new long[]{-1, 5, -1, 3}, 51));
+		assertEquals(5, RustBuildStatistics.percentile(new long[]{-1, 5, -1, 3}, 100));
+	}
+
+	public void testNearestRank() {
+		long[] values = {7, 3, 10, 1, 9, 2, 8, 4, 6, 5};
+		assertEquals(1, RustBuildStatistics.percentile(values, 0));
+		assertEquals(1, RustBuildStatistics.percentile(values, 10));
+		assertEquals(2, RustBuildStatistics.percentile(values, 11));
+		assertEquals(5, RustBuildStatistics.percentile(values, 50));
+		assertEquals(9, RustBuildStatistics.percentile(values, 90));
+		assertEquals(10, RustBuildStatistics.percentile(values, 99));
+		assertEquals(10, RustBuildStatistics.percentile(values, 100));
+	}
+
+	public void testSingleValue() {
+		assertEquals(42, RustBuildStatistics.percentile(new long[]{42}, 1));
+		assertEquals(42, RustBuildStatistics.percentile(new long[]{42}, 100));
+	}
+
+	public void testStderrIsCountedInBytes() {
+		Charset utf8 = Charset.forName("UTF-8");
+		assertEquals(12, RustDiagnosticListener.countBytes("error: oops\n", utf8));
+		// U+00E9 and U+2192 take two and three bytes
+		assertEquals(8, RustDiagnosticListener.countBytes("\u00e9 \u2192 x", utf8));
+		assertEquals(4, RustDiagnosticListener.countBytes("\u00e9 \u00e9 ", Charset.forName("ISO-8859-1")));
+	}
+}
@@ -0,0 +1,30 @@
+package vektah.rust.ide.builder;
+
+import com.intellij.execution.ExecutionException;
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.util.Arrays;
+
+public class RustBuildTargetTest extends TestCase {
+	public void testDistinctOutputs() throws ExecutionException {
+		RustBuildTarget.checkOutputsUnique(Arrays.asList(
+				new RustBuildTarget(new File("/p/src/lib.rs"), new File("/p/out/libfoo.rlib"), true, "foo"),
+				new RustBuildTarget(new File("/p/src/main.rs"), new File("/p/out/foo"), false, "foo"),
+				new RustBuildTarget(new File("/p/src/bin/tool.rs"), new File("/p/out/tool"), false, "tool")
+		));
+	}
+
+	public void testDuplicateOutputIsAnError() {
+		try {
+			RustBuildTarget.checkOutputsUnique(Arrays.asList(
+					new RustBuildTarget(new File("/p/src/main.rs"), new File("/p/out/foo"), false, "foo"),
+					new RustBuildTarget(new File("/p/src/bin/foo.rs"), new File("/p/out/foo"), false, "foo")
+			));
+			fail();
+		}
+		catch (ExecutionException e) {
+			assertTrue(e.getMessage(), e.getMessage().contains("foo.rs"));
+		}
+	}
+}
@@ -0,0 +1,66 @@
+package vektah.rust.ide.builder;
+
+import com.intellij.openapi.util.io.FileUtil;
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class RustCrateGraphTest extends TestCase {
+	private File myDir;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		myDir = FileUtil.createTempDirectory("rust-crate-graph", null);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		FileUtil.delete(myDir);
+		super.tearDown();
+	}
+
+	public void testScan() {
+		List<String> crates = new ArrayList<String>();
+		List<String> modules = new ArrayList<String>();
+		RustCrateGraph.scan("extern crate foo;\n" +
+				"extern crate bar = \"github.com/someone/bar-baz#0.1\";\n" +
+				"// extern crate commented;\n" +
+				"/* mod commented; */\n" +
+				"extern \"C\" { fn abs(x: i32) -> i32; }\n" +
+				"mod a;\n" +
+				"pub mod b {\n" +
+				"    mod c;\n" +
+				"    fn f() { if true { } }\n" +
+				"    mod d { mod e; }\n" +
+				"}\n" +
+				"mod f;\n", crates, modules);
+
+		assertEquals(Arrays.asList("foo", "bar-baz"), crates);
+		assertEquals(Arrays.asList("a", "b/c", "b/d/e", "f"), modules);
+	}
+
+	public void testCrateNameFromId() {
+		assertEquals("bar", RustCrateGraph.crateNameFromId("\"github.com/foo/bar#0.1\""));
+		assertEquals("bar", RustCrateGraph.crateNameFromId("\"bar\""));
+	}
+
+	public void testExternCratesOfSubmodules() throws IOException {
+		File main = write("src/main.rs", "extern crate a;\nmod one;\nmod two;\nmod missing;\n");
+		write("src/one.rs", "extern crate b;\n");
+		write("src/two/mod.rs", "mod three;\n");
+		write("src/two/three.rs", "extern crate c;\nextern crate a;\n");
+
+		assertEquals(Arrays.asList("a", "b", "c"), new ArrayList<String>(RustCrateGraph.findExternCrates(main)));
+	}
+
+	private File write(String path, String text) throws IOException {
+		File file = new File(myDir, path);
+		FileUtil.writeToFile(file, text);
+		return file;
+	}
+}
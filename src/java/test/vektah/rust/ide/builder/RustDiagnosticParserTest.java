@@ -0,0 +1,62 @@
+package vektah.rust.ide.builder;
+
+import junit.framework.TestCase;
+import org.jetbrains.jps.api.CmdlineRemoteProto.Message.BuilderMessage.CompileMessage.Kind;
+
+public class RustDiagnosticParserTest extends TestCase {
+	private final RustDiagnosticParser myParser = new RustDiagnosticParser();
+
+	public void testError() {
+		String line = "src/main.rs:3:5: 3:10 error: unresolved name `y`.";
+
+		assertTrue(myParser.parse(line, 0, line.length()));
+		assertEquals(Kind.ERROR, myParser.getKind());
+		assertEquals("unresolved name `y`.", myParser.getMessage(line));
+		assertEquals("src/main.rs", myParser.getPath(line));
+		assertTrue(myParser.pathEquals(line, "src/main.rs"));
+		assertFalse(myParser.pathEquals(line, "src/main.r"));
+		assertEquals(3, myParser.getLine());
+		assertEquals(5, myParser.getColumn());
+	}
+
+	public void testWarning() {
+		String line = "lib.rs:10:1: 12:2 warning: code is never used: `f`, #[warn(dead_code)] on by default";
+
+		assertTrue(myParser.parse(line, 0, line.length()));
+		assertEquals(Kind.WARNING, myParser.getKind());
+		assertEquals("code is never used: `f`, #[warn(dead_code)] on by default", myParser.getMessage(line));
+		assertEquals(10, myParser.getLine());
+	}
+
+	public void testWithoutLocation() {
+		String line = "error: aborting due to previous error";
+
+		assertTrue(myParser.parse(line, 0, line.length()));
+		assertEquals(Kind.ERROR, myParser.getKind());
+		assertFalse(myParser.hasPath());
+		assertNull(myParser.getPath(line));
+	}
+
+	public void testParsesInPlace() {
+		String text = "garbage\nsrc/a.rs:1:2: 1:3 note: here\nmore garbage";
+		int start = text.indexOf('\n') + 1;
+		int end = text.indexOf('\n', start);
+
+		assertTrue(myParser.parse(text, start, end));
+		assertEquals(Kind.INFO, myParser.getKind());
+		assertEquals("src/a.rs", myParser.getPath(text));
+		assertEquals("here", myParser.getMessage(text));
+	}
+
+	public void testNotADiagnostic() {
+		for (String line : new String[] {
+				"src/main.rs:3     let x: int = y;",
+				"                          ^~~~",
+				"",
+				"task 'rustc' failed at 'explicit failure'",
+				"src/main.rs:3:5: 3:10 unexpected",
+		}) {
+			assertFalse(line, myParser.parse(line, 0, line.length()));
+		}
+	}
+}
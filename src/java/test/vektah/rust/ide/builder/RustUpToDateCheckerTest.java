@@ -0,0 +1,104 @@
+package vektah.rust.ide.builder;
+
+import com.intellij.openapi.util.io.FileUtil;
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class RustUpToDateCheckerTest extends TestCase {
+	private File myDir;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		myDir = FileUtil.createTempDirectory("rust-up-to-date", null);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		FileUtil.delete(myDir);
+		super.tearDown();
+	}
+
+	public void testParseDepInfo() {
+		assertEquals(
+				Arrays.asList("src/main.rs", "src/foo/mod.rs", "src/with space.rs"),
+				RustUpToDateChecker.parseDepInfo("out/main: src/main.rs \\\n  src/foo/mod.rs src/with\\ space.rs\n\nsrc/main.rs:\n")
+		);
+		assertEquals(Arrays.asList("C:\\src\\main.rs"), RustUpToDateChecker.parseDepInfo("C:\\out\\main: C:\\src\\main.rs\r\n"));
+		assertTrue(RustUpToDateChecker.parseDepInfo("").isEmpty());
+	}
+
+	public void testUpToDateUntilContentChanges() throws IOException {
+		RustUpToDateChecker checker = new RustUpToDateChecker(new File(myDir, "system"));
+		File main = write("main.rs", "fn main() {}", 1000L);
+		File output = write("main", "binary", 2000L);
+		File depInfo = write("main.d", output.getPath() + ": main.rs\n", 2000L);
+
+		assertFalse(checker.isUpToDate(output, "rustc main.rs"));
+		checker.recordBuild(output, "rustc main.rs", inputs(depInfo), 1500L);
+		assertTrue(checker.isUpToDate(output, "rustc main.rs"));
+		assertFalse(checker.isUpToDate(output, "rustc -O main.rs"));
+
+		// touched but the same content
+		assertTrue(main.setLastModified(3000L));
+		assertTrue(checker.isUpToDate(output, "rustc main.rs"));
+
+		write("main.rs", "fn main() {;}", 4000L);
+		assertFalse(checker.isUpToDate(output, "rustc main.rs"));
+	}
+
+	public void testNothingRecordedWhenSourceChangedDuringBuild() throws IOException {
+		RustUpToDateChecker checker = new RustUpToDateChecker(new File(myDir, "system"));
+		write("main.rs", "fn main() {}", 5000L);
+		File output = write("main", "binary", 6000L);
+		File depInfo = write("main.d", "main: main.rs\n", 6000L);
+
+		assertFalse(checker.recordBuild(output, "rustc main.rs", inputs(depInfo), 4000L));
+		assertFalse(checker.isUpToDate(output, "rustc main.rs"));
+	}
+
+	public void testStateSurvivesRestart() throws IOException {
+		File system = new File(myDir, "system");
+		write("main.rs", "fn main() {}", 1000L);
+		File output = write("main", "binary", 2000L);
+		File depInfo = write("main.d", "main: main.rs\n", 2000L);
+
+		assertTrue(new RustUpToDateChecker(system).recordBuild(output, "rustc main.rs", inputs(depInfo), 1500L));
+		RustUpToDateChecker restarted = new RustUpToDateChecker(system);
+		assertTrue(restarted.isUpToDate(output, "rustc main.rs"));
+
+		restarted.forget(output);
+		assertFalse(restarted.isUpToDate(output, "rustc main.rs"));
+		assertFalse(new RustUpToDateChecker(system).isUpToDate(output, "rustc main.rs"));
+	}
+
+	public void testLibrariesAreInputs() throws IOException {
+		RustUpToDateChecker checker = new RustUpToDateChecker(new File(myDir, "system"));
+		write("main.rs", "extern crate foo;", 1000L);
+		write("libfoo.rlib", "library", 1000L);
+		File output = write("main", "binary", 2000L);
+		File depInfo = write("main.d", "main: main.rs\n", 2000L);
+
+		assertTrue(checker.recordBuild(output, "rustc main.rs", RustUpToDateChecker.readInputs(depInfo, Collections.singletonList(new File(myDir, "libfoo.rlib")), myDir), 1500L));
+		assertTrue(checker.isUpToDate(output, "rustc main.rs"));
+
+		write("libfoo.rlib", "rebuilt library", 3000L);
+		assertFalse(checker.isUpToDate(output, "rustc main.rs"));
+	}
+
+	private List<File> inputs(File depInfo) throws IOException {
+		return RustUpToDateChecker.readInputs(depInfo, Collections.<File>emptyList(), myDir);
+	}
+
+	private File write(String name, String text, long lastModified) throws IOException {
+		File file = new File(myDir, name);
+		FileUtil.writeToFile(file, text);
+		assertTrue(file.setLastModified(lastModified));
+		return file;
+	}
+}
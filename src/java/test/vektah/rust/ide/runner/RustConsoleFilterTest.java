@@ -0,0 +1,31 @@
+package vektah.rust.ide.runner;
+
+import junit.framework.TestCase;
+
+import java.util.regex.Matcher;
+
+public class RustConsoleFilterTest extends TestCase {
+	public void testLocations() {
+		assertLocation("src/main.rs:12:5: 12:10 error: unresolved name\n", "src/main.rs", "12");
+		assertLocation("\tsrc/lib.rs:3 something\n", "src/lib.rs", "3");
+		assertLocation("/home/me/a.b/c.rs:7:1\n", "/home/me/a.b/c.rs", "7");
+		assertLocation("C:\\src\\main.rs:9:1 note\n", "C:\\src\\main.rs", "9");
+	}
+
+	public void testNotLocations() {
+		assertNull(RustConsoleFilter.matchLocation(""));
+		assertNull(RustConsoleFilter.matchLocation("src/main.rs:12:5 no newline"));
+		assertNull(RustConsoleFilter.matchLocation("thread '<main>' panicked at 'oops', src/main.rs:3\n"));
+		assertNull(RustConsoleFilter.matchLocation("  src/main.rs:3:1 indented\n"));
+		assertNull(RustConsoleFilter.matchLocation(".rs:3:1 no file name\n"));
+		assertNull(RustConsoleFilter.matchLocation("main:3:1 no extension\n"));
+		assertNull(RustConsoleFilter.matchLocation("request took 12.5ms\n"));
+	}
+
+	private static void assertLocation(String line, String file, String lineNumber) {
+		Matcher matcher = RustConsoleFilter.matchLocation(line);
+		assertNotNull(line, matcher);
+		assertEquals(file, matcher.group(1));
+		assertEquals(lineNumber, matcher.group(2));
+	}
+}
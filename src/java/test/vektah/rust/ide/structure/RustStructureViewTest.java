@@ -0,0 +1,147 @@
+package vektah.rust.ide.structure;
+
+import com.intellij.ide.structureView.StructureViewModel;
+import com.intellij.ide.util.treeView.smartTree.TreeElement;
+import com.intellij.openapi.command.WriteCommandAction;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.util.Disposer;
+import com.intellij.psi.PsiDocumentManager;
+import com.intellij.psi.PsiNamedElement;
+import com.intellij.psi.impl.source.PsiFileImpl;
+import com.intellij.psi.stubs.StubElement;
+import com.intellij.testFramework.fixtures.LightPlatformCodeInsightFixtureTestCase;
+import vektah.rust.psi.RustImplItem;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class RustStructureViewTest extends LightPlatformCodeInsightFixtureTestCase {
+	private StructureViewModel myModel;
+
+	@Override
+	protected void tearDown() throws Exception {
+		if (myModel != null) {
+			Disposer.dispose(myModel);
+		}
+		super.tearDown();
+	}
+
+	public void testItems() {
+		TreeElement[] items = configure("struct Point { x: int, y: int }\n" +
+				"impl Point {\n    fn origin() -> Point { Point { x: 0, y: 0 } }\n}\n" +
+				"mod geometry { static PI: f64 = 3.14; }\n" +
+				"fn main() {}\n");
+
+		assertEquals(Arrays.asList("Point", "Point", "geometry", "main"), names(items));
+		assertEquals(Arrays.asList("x", "y"), names(items[0].getChildren()));
+		assertEquals(Arrays.asList("origin"), names(items[1].getChildren()));
+		assertEquals(Arrays.asList("PI"), names(items[2].getChildren()));
+	}
+
+	public void testTraitsEnumsExternsAndMacros() {
+		TreeElement[] items = configure("trait Draw { fn draw(&self); fn size(&self) -> int { 0 } }\n" +
+				"enum Shape { Circle(int), Square { side: int }, Dot }\n" +
+				"extern crate collections;\n" +
+				"extern \"C\" { fn abs(x: i32) -> i32; static errno: i32; }\n" +
+				"macro_rules! square (($x:expr) => ($x * $x))\n");
+
+		assertEquals(Arrays.asList("Draw", "Shape", "collections", "extern \"C\"", "square"), names(items));
+		assertEquals(Arrays.asList("draw", "size"), names(items[0].getChildren()));
+		assertEquals(Arrays.asList("Circle", "Square", "Dot"), names(items[1].getChildren()));
+		assertEquals(0, items[2].getChildren().length);
+		assertEquals(Arrays.asList("abs", "errno"), names(items[3].getChildren()));
+	}
+
+	public void testImplWithoutBody() {
+		TreeElement[] items = configure("impl Point\n");
+		assertEquals(0, items[0].getChildren().length);
+	}
+
+	public void testOnlyChangedChildrenAreLookedUpAgain() {
+		TreeElement[] items = configure("fn main() {}\nimpl Point {\n    fn a() {}\n}\n");
+		TreeElement impl = items[1];
+		TreeElement[] methods = impl.getChildren();
+
+		insert("fn main() {", " let x = 1; ");
+		assertSame(impl, myModel.getRoot().getChildren()[1]);
+		assertSame(methods[0], impl.getChildren()[0]);
+
+		insert("    fn a() {}\n", "    fn b() {}\n");
+		assertSame(impl, myModel.getRoot().getChildren()[1]);
+		assertEquals(Arrays.asList("a", "b"), names(impl.getChildren()));
+		assertSame(methods[0], impl.getChildren()[0]);
+
+		insert("fn main() {}\n", "fn added() {}\n");
+		assertEquals(Arrays.asList("main", "added", "Point"), names(myModel.getRoot().getChildren()));
+	}
+
+	public void testSameChildrenWithoutTheAst() {
+		String text = "extern fn callback(x: i32) {}\n" +
+				"macro_rules! square (($x:expr) => ($x * $x))\n" +
+				"mod inner {\n    extern \"C\" { fn abs(x: i32) -> i32; }\n    macro_rules! id (($x:expr) => ($x))\n    fn f() {}\n}\n" +
+				"impl Point {\n    fn a() {}\n    fn b() {}\n}\n";
+		PsiFileImpl file = (PsiFileImpl) myFixture.addFileToProject("unloaded.rs", text);
+		assertNotNull(file.getStubTree());
+		assertNull(file.getTreeElement());
+
+		RustImplItem impl = null;
+		for (StubElement stub : file.getStubTree().getRoot().getChildrenStubs()) {
+			if (stub.getPsi() instanceof RustImplItem) {
+				impl = (RustImplItem) stub.getPsi();
+			}
+		}
+		assertNotNull(impl);
+		assertEquals(Arrays.asList("a", "b"), psiNames(((HasStructureViewChildren) impl).getChildrenItems()));
+		assertNull("impl children come from the stub", file.getTreeElement());
+
+		myModel = new RustStructureViewModel(file);
+		String unloaded = tree(myModel.getRoot().getChildren(), "");
+		Disposer.dispose(myModel);
+
+		assertEquals(tree(configure(text), ""), unloaded);
+		assertEquals("callback\nsquare\ninner\n extern \"C\"\n  abs\n id\n f\nPoint\n a\n b\n", unloaded);
+	}
+
+	private TreeElement[] configure(String text) {
+		myFixture.configureByText("test.rs", text);
+		myModel = new RustStructureViewModel(myFixture.getFile());
+		return myModel.getRoot().getChildren();
+	}
+
+	private void insert(final String after, final String text) {
+		new WriteCommandAction.Simple(getProject()) {
+			@Override
+			protected void run() throws Throwable {
+				Document document = myFixture.getEditor().getDocument();
+				document.insertString(document.getText().indexOf(after) + after.length(), text);
+				PsiDocumentManager.getInstance(getProject()).commitDocument(document);
+			}
+		}.execute();
+	}
+
+	private static String tree(TreeElement[] elements, String indent) {
+		StringBuilder builder = new StringBuilder();
+		for (TreeElement element : elements) {
+			builder.append(indent).append(element.getPresentation().getPresentableText()).append('\n');
+			builder.append(tree(element.getChildren(), indent + " "));
+		}
+		return builder.toString();
+	}
+
+	private static List<String> psiNames(List<? extends PsiNamedElement> elements) {
+		List<String> names = new ArrayList<String>();
+		for (PsiNamedElement element : elements) {
+			names.add(element.getName());
+		}
+		return names;
+	}
+
+	private static List<String> names(TreeElement[] elements) {
+		List<String> names = new ArrayList<String>();
+		for (TreeElement element : elements) {
+			names.add(element.getPresentation().getPresentableText());
+		}
+		return names;
+	}
+}